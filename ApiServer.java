@@ -0,0 +1,544 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Embedded HTTP/JSON front end (JDK com.sun.net.httpserver) over AuthService, CarService and RentalService.
+// - each request runs on its own virtual thread when the JDK has them (21+), otherwise on a bounded pool
+// - at most maxConcurrent requests touch the services at once; the rest wait briefly, then get 503
+// - a request that runs longer than the timeout gets 504. That only means the response was given up on: the work
+//   is not rolled back and may still commit (e.g. a rental), and it keeps its slot in the limit until it really ends
+// - stop() lets in-flight requests finish before closing the connection pool
+// Clients authenticate with "Authorization: Bearer <token>" using the token returned by /api/login.
+// GET /metrics serves Metrics.scrape() (Prometheus text format) outside the request limit, so it works under overload.
+public class ApiServer {
+    private static final Log LOG = Log.get(ApiServer.class);
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final AuthService authService;
+    private final CarService carService;
+    private final RentalService rentalService;
+    private final int port;
+    private final long requestTimeoutMillis;
+    private final long queueTimeoutMillis;
+    private final int shutdownGraceSeconds;
+    private final Semaphore inFlight;
+    private final int maxConcurrent;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final int fallbackThreads;
+
+    private HttpServer server;
+    private ExecutorService dispatcher;
+    private ExecutorService workers;
+
+    public ApiServer(AuthService authService, CarService carService, RentalService rentalService, DatabaseConfig config) {
+        this.authService = authService;
+        this.carService = carService;
+        this.rentalService = rentalService;
+        this.port = config.getInt("server.port", 8080);
+        this.requestTimeoutMillis = config.getLong("server.requestTimeoutMillis", 10_000);
+        this.queueTimeoutMillis = config.getLong("server.queueTimeoutMillis", 2_000);
+        this.shutdownGraceSeconds = config.getInt("server.shutdownGraceSeconds", 10);
+        // Default: a few requests per pooled connection, so the DB pool is never flooded with waiters
+        this.maxConcurrent = config.getInt("server.maxConcurrentRequests", config.getMaxPoolSize() * 4);
+        this.inFlight = new Semaphore(maxConcurrent, true);
+        this.fallbackThreads = Math.max(4, config.getInt("server.platformThreads", 200));
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        dispatcher = newRequestExecutor("http-dispatch");
+        workers = newRequestExecutor("http-worker");
+        server.setExecutor(dispatcher);
+        server.createContext("/api/", this::handle);
+        server.createContext("/metrics", this::metrics);
+        Metrics.gauge("http.requests.inFlight", () -> maxConcurrent - inFlight.availablePermits());
+        Metrics.gauge("http.requests.rejected", rejected::sum);
+        Metrics.gauge("http.requests.timedOut", timedOut::sum);
+        server.start();
+        LOG.info("HTTP API listening on port {}", port);
+    }
+
+    // Blocks new requests, waits for in-flight ones (up to the grace period), then releases resources
+    public void stop() {
+        if (server == null) return;
+        LOG.info("Shutting down HTTP API...");
+        server.stop(shutdownGraceSeconds);
+        dispatcher.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(shutdownGraceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DatabaseManager.shutdown();
+        server = null;
+    }
+
+    // Virtual threads keep blocking JDBC calls from tying up platform threads.
+    // Looked up reflectively so the code still runs on JDK 17, where a fixed pool of platform threads is used instead.
+    private ExecutorService newRequestExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(fallbackThreads, r -> {
+                Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!inFlight.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                send(exchange, 503, error("Server is busy, please retry."));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Server is shutting down."));
+            return;
+        }
+
+        // Whoever claims the request releases its permit: the worker when it runs it (after route() returns, so a
+        // request still inside JDBC after a 504 keeps counting against the limit), or this thread if it gave up
+        // before the worker started
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<Response> future = null;
+        try {
+            Request request = new Request(exchange);
+            future = workers.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) return null; // timed out while queued
+                try {
+                    return route(request);
+                } finally {
+                    inFlight.release();
+                }
+            });
+            Response response = future.get(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+            send(exchange, response.status, response.body);
+        } catch (TimeoutException e) {
+            future.cancel(true); // JDBC calls usually ignore the interrupt; the request may still complete
+            timedOut.increment();
+            send(exchange, 504, error("Request timed out."));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException || cause instanceof DateTimeParseException) {
+                send(exchange, 400, error("Bad request: " + cause.getMessage()));
+            } else {
+                LOG.error("Unhandled error in {}: {}", exchange.getRequestURI(), cause);
+                send(exchange, 500, error("Internal server error."));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error("Bad request: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Server is shutting down."));
+        } finally {
+            if (claimed.compareAndSet(false, true)) {
+                inFlight.release(); // never reached a worker
+            }
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, error("Use GET."));
+            return;
+        }
+        byte[] bytes = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Response route(Request req) {
+        String route = req.method + " " + req.path;
+        switch (route) {
+            case "GET /api/health":
+                return ok(Map.of("status", "up"));
+            case "GET /api/stats":
+                return stats();
+            case "POST /api/register":
+                return register(req);
+            case "GET /api/usernames/available":
+                return usernamesAvailable(req);
+            case "POST /api/login":
+                return login(req);
+            case "POST /api/logout":
+                return logout(req);
+            case "GET /api/cars":
+                return listCars(req);
+            case "GET /api/cars/free":
+                return freeCars(req);
+            case "GET /api/cars/search":
+                return searchCars(req);
+            case "GET /api/fleet/summary":
+                return fleetSummary();
+            case "GET /api/rentals":
+                return myRentals(req);
+            case "POST /api/rentals":
+                return rent(req);
+            case "POST /api/rentals/extend":
+                return extend(req);
+            case "POST /api/returns":
+                return returnCar(req);
+            case "POST /api/returns/batch":
+                return returnCars(req);
+            default:
+                if (req.method.equals("GET") && req.path.startsWith("/api/cars/")) {
+                    return carByNumber(req.path.substring("/api/cars/".length()));
+                }
+                return new Response(404, error("No such endpoint: " + route));
+        }
+    }
+
+    // --- Endpoints ---
+
+    private Response stats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("pool", DatabaseManager.getPoolStats().toString());
+        body.put("statementCache", StatementCache.getStats().toString());
+        body.put("inFlightPermitsFree", inFlight.availablePermits());
+        return ok(body);
+    }
+
+    // {"total": n, "byStatus": {"available": n, ...}, "byType": {"SUV": {"total": n, "available": n, ...}, ...}}
+    private Response fleetSummary() {
+        FleetSnapshot fleet = carService.getFleetSnapshot();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total", fleet.size());
+        body.put("byStatus", statusCounts(fleet, null));
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (int code = 0; code < CarType.count(); code++) {
+            CarType type = CarType.byCode(code);
+            int total = fleet.count(null, type);
+            if (total > 0) {
+                Map<String, Object> counts = statusCounts(fleet, type);
+                counts.put("total", total);
+                byType.put(type.getName(), counts);
+            }
+        }
+        body.put("byType", byType);
+        return ok(body);
+    }
+
+    private static Map<String, Object> statusCounts(FleetSnapshot fleet, CarType type) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        for (CarStatus status : CarStatus.values()) {
+            counts.put(status.getDbValue(), fleet.count(status, type));
+        }
+        return counts;
+    }
+
+    private Response register(Request req) {
+        Map<String, String> b = req.json();
+        boolean success = authService.register(required(b, "username"), required(b, "password"), required(b, "name"),
+                b.get("contactNumber"), b.get("email"), b.get("address"));
+        return success ? new Response(201, Json.write(Map.of("success", true)))
+                : new Response(409, error("Registration failed. Username might already exist."));
+    }
+
+    // ?names=alice,bob,carol -> {"alice": true, "bob": false, ...}; no login needed (used by the signup form)
+    private Response usernamesAvailable(Request req) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : requiredQuery(req, "names").split(",")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        if (names.isEmpty() || names.size() > 100) {
+            throw new IllegalArgumentException("'names' must list 1 to 100 usernames");
+        }
+        return ok(authService.checkUsernamesAvailable(names));
+    }
+
+    private Response login(Request req) {
+        Map<String, String> b = req.json();
+        Session session;
+        try {
+            session = authService.loginAsync(required(b, "username"), required(b, "password")).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                return new Response(503, error("Too many logins in progress, please retry."));
+            }
+            throw e;
+        }
+        if (session == null) {
+            return new Response(401, error("Invalid username or password."));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", session.getToken());
+        body.put("name", session.getUser().getName());
+        return ok(body);
+    }
+
+    private Response logout(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        authService.logout(session);
+        return ok(Map.of("success", true));
+    }
+
+    private Response listCars(Request req) {
+        CarFilter filter = new CarFilter(req.query("type"), req.query("prefix"), true);
+        int after = req.intQuery("after", 0);
+        int limit = Math.min(500, Math.max(1, req.intQuery("limit", 50)));
+        Session session = authService.getSession(req.bearerToken()); // optional, only for read-your-writes
+        List<Car> cars = carService.getCarPage(session, filter, after, limit);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("cars", toCarList(cars));
+        body.put("nextAfter", cars.size() == limit ? cars.get(cars.size() - 1).getId() : null);
+        return ok(body);
+    }
+
+    private Response freeCars(Request req) {
+        LocalDate start = LocalDate.parse(requiredQuery(req, "start"));
+        LocalDate end = LocalDate.parse(requiredQuery(req, "end"));
+        int limit = Math.min(500, Math.max(1, req.intQuery("limit", 50)));
+        List<Car> cars = rentalService.findCarsFreeBetween(req.query("type"), start, end, limit);
+        return ok(Map.of("cars", toCarList(cars)));
+    }
+
+    // ?q=toyota&type=SUV&available=true&limit=10 -> {"cars": [...]}, best match first
+    private Response searchCars(Request req) {
+        String query = requiredQuery(req, "q");
+        String available = req.query("available");
+        boolean availableOnly = available == null || Boolean.parseBoolean(available.trim());
+        int limit = Math.min(100, Math.max(1, req.intQuery("limit", 10)));
+        List<Car> cars = carService.searchCars(query, req.query("type"), availableOnly, limit);
+        return ok(Map.of("cars", toCarList(cars)));
+    }
+
+    private Response carByNumber(String carNum) {
+        Car car = carService.getCarByCarNumber(URLDecoder.decode(carNum, StandardCharsets.UTF_8));
+        return car == null ? new Response(404, error("Car not found.")) : ok(toCarMap(car));
+    }
+
+    private Response myRentals(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        List<Map<String, Object>> rentals = new ArrayList<>();
+        for (RentalDetails rental : rentalService.getRentalsForUser(session)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("rentalId", rental.getRentalId());
+            row.put("carNum", rental.getCarNum());
+            row.put("carName", rental.getCarName());
+            row.put("carType", rental.getCarType());
+            row.put("startDate", rental.getStartDate());
+            row.put("endDate", rental.getEndDate());
+            row.put("estimatedCost", rental.getEstimatedCost());
+            rentals.add(row);
+        }
+        return ok(Map.of("rentals", rentals));
+    }
+
+    private Response rent(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        Map<String, String> b = req.json();
+        boolean success = rentalService.rentCar(session, required(b, "carNum"),
+                LocalDate.parse(required(b, "startDate")), LocalDate.parse(required(b, "endDate")));
+        return success ? new Response(201, Json.write(Map.of("success", true)))
+                : new Response(409, error("Car could not be rented for those dates."));
+    }
+
+    private Response extend(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        Map<String, String> b = req.json();
+        boolean success = rentalService.extendRental(session, Integer.parseInt(required(b, "rentalId")),
+                LocalDate.parse(required(b, "newEndDate")));
+        return success ? ok(Map.of("success", true)) : new Response(409, error("Rental could not be extended."));
+    }
+
+    private Response returnCar(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        boolean success = rentalService.returnCar(session, required(req.json(), "carNum"));
+        return success ? ok(Map.of("success", true)) : new Response(409, error("Car could not be returned."));
+    }
+
+    // {"carNums": "KA01,KA02,..."} -> one entry per car: {"carNum", "outcome", "rentalIds", "amountDue"}
+    private Response returnCars(Request req) {
+        Session session = authService.getSession(req.bearerToken());
+        if (session == null) return unauthorized();
+        List<String> carNums = new ArrayList<>();
+        for (String carNum : required(req.json(), "carNums").split(",")) {
+            if (!carNum.isBlank()) {
+                carNums.add(carNum.trim());
+            }
+        }
+        if (carNums.size() > 1000) {
+            throw new IllegalArgumentException("'carNums' must list at most 1000 cars");
+        }
+        BulkReturnResult result = rentalService.returnCars(session, carNums);
+        if (result.isFailed()) {
+            return new Response(503, error("Cars could not be returned."));
+        }
+        List<Map<String, Object>> cars = new ArrayList<>();
+        for (BulkReturnResult.Entry entry : result.getEntries()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("carNum", entry.getCarNum());
+            row.put("outcome", entry.getOutcome().name().toLowerCase(Locale.ROOT));
+            row.put("rentalIds", entry.getClosedRentalIds());
+            row.put("amountDue", entry.getAmountDue());
+            cars.add(row);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("returned", result.count(BulkReturnResult.Outcome.RETURNED));
+        body.put("cars", cars);
+        return ok(body);
+    }
+
+    // --- Helpers ---
+
+    private static List<Map<String, Object>> toCarList(List<Car> cars) {
+        List<Map<String, Object>> list = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            list.add(toCarMap(car));
+        }
+        return list;
+    }
+
+    private static Map<String, Object> toCarMap(Car car) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", car.getId());
+        map.put("carNum", car.getCarNum());
+        map.put("carType", car.getCarType());
+        map.put("carName", car.getCarName());
+        map.put("status", car.getStatus());
+        return map;
+    }
+
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing field '" + field + "'");
+        }
+        return value;
+    }
+
+    private static String requiredQuery(Request req, String name) {
+        String value = req.query(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing query parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    private static Response ok(Object body) {
+        return new Response(200, Json.write(body));
+    }
+
+    private static Response unauthorized() {
+        return new Response(401, error("Missing, invalid or expired session token."));
+    }
+
+    private static String error(String message) {
+        return Json.write(Map.of("success", false, "error", message));
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    // Everything a handler needs from the exchange, read up front on the dispatcher thread
+    private static final class Request {
+        private final String method;
+        private final String path;
+        private final Map<String, String> query = new HashMap<>();
+        private final String authorization;
+        private final String body;
+
+        private Request(HttpExchange exchange) throws IOException {
+            this.method = exchange.getRequestMethod();
+            this.path = exchange.getRequestURI().getPath();
+            this.authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                                URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("request body too large");
+                }
+                this.body = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        Map<String, String> json() {
+            return Json.parseObject(body);
+        }
+
+        String query(String name) {
+            return query.get(name);
+        }
+
+        int intQuery(String name, int defaultValue) {
+            String value = query.get(name);
+            return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+        }
+
+        String bearerToken() {
+            if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                return null;
+            }
+            return authorization.substring(7).trim();
+        }
+    }
+}
@@ -1,53 +1,136 @@
-import java.sql.SQLException;
-import java.util.Objects;
-// In a real application, you'd import a hashing library like org.mindrot.jbcrypt.BCrypt
-// For this example, we'll simulate hashing.
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+// Passwords are stored as PBKDF2 hashes (see PasswordHasher). The hashing itself runs on the hasher's bounded pool,
+// never on the request thread's share of the CPU; plaintext passwords from before are rehashed on the next login.
 public class AuthService {
+    private static final Log LOG = Log.get(AuthService.class);
+    private static final OperationMetrics REGISTER = Metrics.operation("service.auth.register");
+    private static final OperationMetrics LOGIN = Metrics.operation("service.auth.login");
+
     private UserDAO userDAO;
-    private User loggedInUser; // To keep track of the currently logged-in user
+    private SessionStore sessionStore; // Logged-in users, one entry per session token
+    private PasswordHasher passwordHasher;
+    private UserIndex userIndex; // Bloom filter over usernames/emails: most free names need no duplicate query
 
-    public AuthService(UserDAO userDAO) {
+    public AuthService(UserDAO userDAO, SessionStore sessionStore, PasswordHasher passwordHasher, UserIndex userIndex) {
         this.userDAO = userDAO;
+        this.sessionStore = sessionStore;
+        this.passwordHasher = passwordHasher;
+        this.userIndex = userIndex;
     }
 
     public boolean register(String username, String password, String name, String contactNumber, String email, String address) {
-        // In a real app: Hash the password before creating the User object
-        // String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
-        String hashedPassword = password; // SIMULATED HASHING: DO NOT USE IN PRODUCTION
+        long start = System.nanoTime();
+        // Hash on the hashing pool while the duplicate check runs here; a taken name cancels the hash
+        CompletableFuture<String> hashed = passwordHasher.hashAsync(password);
+        String conflict = userIndex.findConflict(username, email);
+        if (conflict != null) {
+            hashed.cancel(false);
+            if (conflict.equals("username")) {
+                LOG.info("Registration failed. Username '{}' is already taken.", username);
+            } else {
+                LOG.info("Registration failed. Email '{}' is already registered.", email);
+            }
+            REGISTER.failure(start);
+            return false;
+        }
+        String hashedPassword;
+        try {
+            hashedPassword = hashed.join();
+        } catch (CompletionException e) {
+            if (isBusy(e)) {
+                LOG.info("Registration is busy right now. Please try again in a moment.");
+            } else {
+                LOG.info("Registration failed: {}", e.getCause().getMessage());
+            }
+            REGISTER.failure(start);
+            return false;
+        }
 
         User newUser = new User(username, hashedPassword, name, contactNumber, email, address);
         boolean success = userDAO.registerUser(newUser);
         if (success) {
-            System.out.println("Registration successful for user: " + username);
+            userIndex.add(username, email);
+            LOG.info("Registration successful for user: {}", username);
         } else {
-            System.out.println("Registration failed. Username might already exist or a database error occurred.");
+            LOG.info("Registration failed. Username might already exist or a database error occurred.");
         }
+        REGISTER.record(start, success);
         return success;
     }
 
-    public User login(String username, String password) {
-        User user = userDAO.findUserByUsername(username);
-        if (user != null) {
-            // In a real app: Compare the provided password (after hashing it) with the stored hashed password
-            // if (BCrypt.checkpw(password, user.getPassword())) {
-            if (Objects.equals(password, user.getPassword())) { // SIMULATED HASHING CHECK: DO NOT USE IN PRODUCTION
-                this.loggedInUser = user;
-                System.out.println("Login successful! Welcome, " + user.getName());
-                return user;
+    // username -> true if it can still be registered; free names are answered from memory, the rest in one query
+    public Map<String, Boolean> checkUsernamesAvailable(Collection<String> usernames) {
+        return userIndex.checkAvailability(usernames);
+    }
+
+    // Returns a new session for the user, or null if the credentials are wrong (or hashing is overloaded)
+    public Session login(String username, String password) {
+        try {
+            return loginAsync(username, password).join();
+        } catch (CompletionException e) {
+            if (isBusy(e)) {
+                LOG.info("Login is busy right now. Please try again in a moment.");
+                return null;
             }
+            throw e;
         }
-        System.out.println("Login failed. Invalid username or password.");
-        this.loggedInUser = null;
-        return null;
     }
 
-    public User getLoggedInUser() {
-        return loggedInUser;
+    // The user row is read on the calling thread (it holds the salt and iteration count the check needs),
+    // then verification runs on the hashing pool. Completes exceptionally with RejectedExecutionException
+    // when the hashing queue is full, so callers can answer "busy" instead of queueing without bound.
+    public CompletableFuture<Session> loginAsync(String username, String password) {
+        long start = System.nanoTime();
+        User user = userDAO.findUserByUsername(username);
+        String stored = user == null ? null : user.getPassword();
+        return passwordHasher.verifyAsync(password, stored).handle((matches, error) -> {
+            if (error != null) {
+                LOGIN.failure(start);
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            if (user == null || !matches) {
+                LOG.info("Login failed. Invalid username or password.");
+                LOGIN.failure(start);
+                return null;
+            }
+            if (passwordHasher.needsRehash(stored)) {
+                rehashInBackground(user, password);
+            }
+            LOG.info("Login successful! Welcome, {}", user.getName());
+            Session session = sessionStore.create(user);
+            LOGIN.success(start);
+            return session;
+        });
+    }
+
+    // Upgrades plaintext or weaker hashes; the login does not wait for it and a failure just retries next time
+    private void rehashInBackground(User user, String password) {
+        String oldHash = user.getPassword();
+        passwordHasher.hashAsync(password).thenAccept(newHash -> {
+            if (userDAO.updatePasswordHash(user.getId(), oldHash, newHash)) {
+                user.setPassword(newHash);
+            }
+        });
+    }
+
+    private static boolean isBusy(CompletionException e) {
+        return e.getCause() instanceof RejectedExecutionException;
     }
 
-    public void logout() {
-        this.loggedInUser = null;
-        System.out.println("Logged out successfully.");
+    // Looks up a session by token, extending its idle timeout; null if it has expired or was logged out
+    public Session getSession(String token) {
+        return sessionStore.resolve(token);
+    }
+
+    public void logout(Session session) {
+        if (session != null) {
+            sessionStore.invalidate(session.getToken());
+        }
+        LOG.info("Logged out successfully.");
     }
-}
\ No newline at end of file
+}
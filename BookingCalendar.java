@@ -0,0 +1,372 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+// In-memory booking calendar: for every car, its booked date ranges kept as sorted primitive arrays.
+// Answers "is this car free from D1 to D2" with a binary search and rejects overlapping bookings
+// before anything is written to the database.
+// Dates are stored as epoch days (int); each booking costs 12 bytes, and bookings that have already
+// ended are dropped by pruneBefore() so memory only grows with future bookings.
+public class BookingCalendar {
+    private static final Log LOG = Log.get(BookingCalendar.class);
+
+    // Placeholder rental id for a booking that is reserved in memory but not yet committed to the database
+    public static final int PENDING = 0;
+
+    private final ConcurrentHashMap<Integer, CarCalendar> byCarId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CarCalendar> byCarNum = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CarType, TypeBucket> byType = new ConcurrentHashMap<>();
+
+    // Builds the calendar from the cars table and all rentals that have not ended yet
+    public void load(CarDAO carDAO, RentalDAO rentalDAO) {
+        long start = System.nanoTime();
+        int[] cars = {0};
+        int[] bookings = {0};
+        carDAO.forEachCar(car -> {
+            registerCar(car);
+            cars[0]++;
+        });
+        rentalDAO.forEachUpcomingRental(LocalDate.now(), rental -> {
+            CarCalendar calendar = byCarId.get(rental.getCarId());
+            if (calendar != null && calendar.tryInsert(
+                    rental.getStartDate().toEpochDay(), rental.getEndDate().toEpochDay(), rental.getId())) {
+                bookings[0]++;
+            }
+        });
+        LOG.infof("Booking calendar loaded: %d cars, %d bookings in %d ms",
+                cars[0], bookings[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Returns false when the car was already known
+    public boolean registerCar(Car car) {
+        CarCalendar calendar = new CarCalendar(car);
+        if (byCarId.putIfAbsent(car.getId(), calendar) == null) {
+            byCarNum.put(car.getCarNum(), calendar);
+            if (car.getCarType() != null) {
+                byType.computeIfAbsent(car.getCarType(), k -> new TypeBucket()).add(calendar);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isFree(int carId, LocalDate startDate, LocalDate endDate) {
+        CarCalendar calendar = byCarId.get(carId);
+        return calendar == null || calendar.isFree(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    // Reserves the dates for the car if they do not overlap any booking.
+    // Returns false on overlap. Unknown cars (e.g. added by another process) are let through to the database.
+    public boolean reserve(String carNum, LocalDate startDate, LocalDate endDate) {
+        CarCalendar calendar = byCarNum.get(carNum);
+        return calendar == null || calendar.tryInsert(startDate.toEpochDay(), endDate.toEpochDay(), PENDING);
+    }
+
+    // Replaces a PENDING reservation with the id the database generated
+    public void confirm(String carNum, LocalDate startDate, int rentalId) {
+        CarCalendar calendar = byCarNum.get(carNum);
+        if (calendar != null) {
+            calendar.setRentalId(startDate.toEpochDay(), rentalId);
+        }
+    }
+
+    // Drops a PENDING reservation after the database write failed
+    public void cancel(String carNum, LocalDate startDate) {
+        CarCalendar calendar = byCarNum.get(carNum);
+        if (calendar != null) {
+            calendar.removeStartingAt(startDate.toEpochDay(), PENDING);
+        }
+    }
+
+    // Moves the end date of an existing booking; fails if the new range would overlap the next booking
+    public boolean extend(int carId, int rentalId, LocalDate newEndDate) {
+        CarCalendar calendar = byCarId.get(carId);
+        return calendar == null || calendar.changeEnd(rentalId, newEndDate.toEpochDay());
+    }
+
+    // Car came back on returnDate: the booking covering that day ends the day before, freeing the car from today on
+    public void release(int carId, LocalDate returnDate) {
+        CarCalendar calendar = byCarId.get(carId);
+        if (calendar != null) {
+            calendar.truncateAt(returnDate.toEpochDay());
+        }
+    }
+
+    // A booking written by another app instance (see FleetChangeListener): added, or its end date moved if known.
+    // Returns false when it overlaps a booking held here; the database has the final say then.
+    public boolean applyBooking(int carId, int rentalId, LocalDate startDate, LocalDate endDate) {
+        CarCalendar calendar = byCarId.get(carId);
+        return calendar == null || calendar.upsert(startDate.toEpochDay(), endDate.toEpochDay(), rentalId);
+    }
+
+    // Another app instance closed the rental: its days from fromDate on are free again
+    public void endBooking(int carId, int rentalId, LocalDate fromDate) {
+        CarCalendar calendar = byCarId.get(carId);
+        if (calendar != null) {
+            calendar.endRental(rentalId, fromDate.toEpochDay());
+        }
+    }
+
+    // Rebuilds every car's bookings from the database (after change events were missed).
+    // Reservations that are still PENDING here are kept, so rentals in flight are not lost.
+    public void resync(CarDAO carDAO, RentalDAO rentalDAO) {
+        BookingCalendar fresh = new BookingCalendar();
+        fresh.load(carDAO, rentalDAO);
+        for (CarCalendar loaded : fresh.byCarId.values()) {
+            registerCar(loaded.car);
+            byCarId.get(loaded.car.getId()).replaceBookings(loaded);
+        }
+    }
+
+    // Cars of the given type (any type if null) with no booking overlapping startDate..endDate.
+    // statusOf gives a car's current status (null if unknown). Cars in maintenance are left out, and so are rented
+    // cars with no booking covering today: they are out past their end date and nobody knows when they are back.
+    public List<Car> findFreeCars(CarType carType, LocalDate startDate, LocalDate endDate, int limit,
+                                  IntFunction<CarStatus> statusOf) {
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+        long today = LocalDate.now().toEpochDay();
+        List<Car> free = new ArrayList<>();
+        if (carType != null) {
+            TypeBucket bucket = byType.get(carType);
+            if (bucket != null) {
+                bucket.collectFree(from, to, today, statusOf, limit, free);
+            }
+        } else {
+            for (TypeBucket bucket : byType.values()) {
+                if (!bucket.collectFree(from, to, today, statusOf, limit, free)) break;
+            }
+        }
+        return free;
+    }
+
+    // Forgets bookings that ended before the given date; run daily to keep memory bounded
+    public void pruneBefore(LocalDate date) {
+        long day = date.toEpochDay();
+        for (CarCalendar calendar : byCarId.values()) {
+            calendar.pruneBefore(day);
+        }
+    }
+
+    // For long-running processes: drop finished bookings once a day
+    public void startDailyPruning() {
+        ScheduledExecutorService pruner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "booking-calendar-pruner");
+            t.setDaemon(true);
+            return t;
+        });
+        pruner.scheduleWithFixedDelay(() -> pruneBefore(LocalDate.now()), 1, 24, TimeUnit.HOURS);
+    }
+
+    // Cars of one type, append-only array so searches can scan it without locking
+    private static final class TypeBucket {
+        private volatile CarCalendar[] cars = new CarCalendar[16];
+        private volatile int size;
+
+        synchronized void add(CarCalendar calendar) {
+            if (size == cars.length) {
+                cars = Arrays.copyOf(cars, size * 2);
+            }
+            cars[size] = calendar;
+            size = size + 1;
+        }
+
+        // Returns false once the limit is reached
+        boolean collectFree(long from, long to, long today, IntFunction<CarStatus> statusOf, int limit, List<Car> out) {
+            int n = size;
+            CarCalendar[] snapshot = cars;
+            for (int i = 0; i < n; i++) {
+                if (out.size() >= limit) return false;
+                CarCalendar calendar = snapshot[i];
+                if (calendar.isFree(from, to) && calendar.canTake(statusOf.apply(calendar.car.getId()), today)) {
+                    out.add(calendar.car);
+                }
+            }
+            return out.size() < limit;
+        }
+    }
+
+    // Bookings of one car, sorted by start date and never overlapping (so end dates are sorted too)
+    private static final class CarCalendar {
+        private final Car car;
+        private int[] starts = new int[0];
+        private int[] ends = new int[0];
+        private int[] rentalIds = new int[0];
+        private int count;
+
+        CarCalendar(Car car) {
+            this.car = car;
+        }
+
+        synchronized boolean isFree(long from, long to) {
+            int i = firstEndingOnOrAfter(from);
+            return i == count || starts[i] > to;
+        }
+
+        // Whether the car can go out at all: not in maintenance, and not overdue (rented with no booking today)
+        boolean canTake(CarStatus status, long today) {
+            if (status == CarStatus.MAINTENANCE) return false;
+            return status != CarStatus.RENTED || !isFree(today, today);
+        }
+
+        synchronized boolean tryInsert(long from, long to, int rentalId) {
+            if (!isFree(from, to)) {
+                return false;
+            }
+            insert(from, to, rentalId);
+            return true;
+        }
+
+        synchronized void insert(long from, long to, int rentalId) {
+            if (count == starts.length) {
+                int capacity = Math.max(4, count * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                rentalIds = Arrays.copyOf(rentalIds, capacity);
+            }
+            int pos = firstEndingOnOrAfter(from);
+            System.arraycopy(starts, pos, starts, pos + 1, count - pos);
+            System.arraycopy(ends, pos, ends, pos + 1, count - pos);
+            System.arraycopy(rentalIds, pos, rentalIds, pos + 1, count - pos);
+            starts[pos] = (int) from;
+            ends[pos] = (int) to;
+            rentalIds[pos] = rentalId;
+            count++;
+        }
+
+        synchronized void setRentalId(long from, int rentalId) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] == from && rentalIds[i] == PENDING) {
+                    rentalIds[i] = rentalId;
+                    return;
+                }
+            }
+        }
+
+        synchronized void removeStartingAt(long from, int rentalId) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] == from && rentalIds[i] == rentalId) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        synchronized boolean changeEnd(int rentalId, long newEnd) {
+            for (int i = 0; i < count; i++) {
+                if (rentalIds[i] == rentalId) {
+                    if (newEnd < starts[i] || (i + 1 < count && starts[i + 1] <= newEnd)) {
+                        return false;
+                    }
+                    ends[i] = (int) newEnd;
+                    return true;
+                }
+            }
+            return true; // booking not tracked (already pruned), nothing to check against
+        }
+
+        synchronized boolean upsert(long from, long to, int rentalId) {
+            for (int i = 0; i < count; i++) {
+                if (rentalIds[i] == rentalId) {
+                    if (starts[i] == from) {
+                        return changeEnd(rentalId, to);
+                    }
+                    removeAt(i); // start date moved: re-insert below
+                    break;
+                }
+            }
+            return tryInsert(from, to, rentalId);
+        }
+
+        synchronized void endRental(int rentalId, long day) {
+            for (int i = 0; i < count; i++) {
+                if (rentalIds[i] == rentalId) {
+                    if (starts[i] >= day) {
+                        removeAt(i);
+                    } else if (ends[i] >= day) {
+                        ends[i] = (int) day - 1;
+                    }
+                    return;
+                }
+            }
+        }
+
+        // Takes over the bookings of a freshly loaded calendar, then puts back what is still PENDING here
+        synchronized void replaceBookings(CarCalendar loaded) {
+            int[] pendingStarts = new int[count];
+            int[] pendingEnds = new int[count];
+            int pending = 0;
+            for (int i = 0; i < count; i++) {
+                if (rentalIds[i] == PENDING) {
+                    pendingStarts[pending] = starts[i];
+                    pendingEnds[pending++] = ends[i];
+                }
+            }
+            synchronized (loaded) {
+                starts = Arrays.copyOf(loaded.starts, Math.max(4, loaded.count + pending));
+                ends = Arrays.copyOf(loaded.ends, starts.length);
+                rentalIds = Arrays.copyOf(loaded.rentalIds, starts.length);
+                count = loaded.count;
+            }
+            for (int i = 0; i < pending; i++) {
+                tryInsert(pendingStarts[i], pendingEnds[i], PENDING);
+            }
+        }
+
+        synchronized void truncateAt(long day) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] <= day && ends[i] >= day) {
+                    if (starts[i] == day) {
+                        removeAt(i);
+                    } else {
+                        ends[i] = (int) day - 1;
+                    }
+                    return;
+                }
+            }
+        }
+
+        synchronized void pruneBefore(long day) {
+            int drop = firstEndingOnOrAfter(day);
+            if (drop == 0) return;
+            System.arraycopy(starts, drop, starts, 0, count - drop);
+            System.arraycopy(ends, drop, ends, 0, count - drop);
+            System.arraycopy(rentalIds, drop, rentalIds, 0, count - drop);
+            count -= drop;
+            if (count < starts.length / 4) { // give memory back after a burst of bookings
+                int capacity = Math.max(4, count * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                rentalIds = Arrays.copyOf(rentalIds, capacity);
+            }
+        }
+
+        private void removeAt(int i) {
+            System.arraycopy(starts, i + 1, starts, i, count - i - 1);
+            System.arraycopy(ends, i + 1, ends, i, count - i - 1);
+            System.arraycopy(rentalIds, i + 1, rentalIds, i, count - i - 1);
+            count--;
+        }
+
+        // Binary search over the sorted end dates
+        private int firstEndingOnOrAfter(long day) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
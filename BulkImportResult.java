@@ -0,0 +1,33 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk car import: how many rows went in and which ones were skipped as duplicates
+public class BulkImportResult {
+    private long insertedCount;
+    private long duplicateCount;
+    private final List<String> duplicateCarNums = new ArrayList<>(); // Only filled by the in-memory batch API
+    private boolean failed;
+
+    public void recordInserted(long count) { insertedCount += count; }
+
+    public void recordDuplicate(String carNum, boolean keepCarNum) {
+        duplicateCount++;
+        if (keepCarNum) {
+            duplicateCarNums.add(carNum);
+        }
+    }
+
+    public void markFailed() { failed = true; }
+
+    // Getters
+    public long getInsertedCount() { return insertedCount; }
+    public long getDuplicateCount() { return duplicateCount; }
+    public List<String> getDuplicateCarNums() { return duplicateCarNums; }
+    public boolean isFailed() { return failed; }
+
+    @Override
+    public String toString() {
+        return (failed ? "Import failed and was rolled back. " : "")
+                + "Inserted: " + insertedCount + ", duplicates skipped: " + duplicateCount;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Outcome of returning one or more cars: one entry per requested car number, in the order they were given
+public class BulkReturnResult {
+    public enum Outcome { RETURNED, NOT_FOUND, NOT_RENTED, FAILED }
+
+    public static class Entry {
+        private final String carNum;
+        private Outcome outcome = Outcome.NOT_FOUND;
+        private Car car; // the returned car, or the car as found when it was not rented
+        private final List<Integer> closedRentalIds = new ArrayList<>();
+        private int rentalUserId; // customer of the closed rental (0 if none was open), not whoever checked the car in
+        private double amountDue; // final cost of the rentals closed by this return
+
+        private Entry(String carNum) {
+            this.carNum = carNum;
+        }
+
+        // Getters
+        public String getCarNum() { return carNum; }
+        public Outcome getOutcome() { return outcome; }
+        public Car getCar() { return car; }
+        public List<Integer> getClosedRentalIds() { return closedRentalIds; }
+        public int getRentalUserId() { return rentalUserId; }
+        public double getAmountDue() { return amountDue; }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private boolean failed;
+
+    // Repeated car numbers get a single entry
+    public BulkReturnResult(Collection<String> carNums) {
+        for (String carNum : carNums) {
+            entries.putIfAbsent(carNum, new Entry(carNum));
+        }
+    }
+
+    public void recordFound(Car car) {
+        Entry entry = entries.get(car.getCarNum());
+        if (entry != null) {
+            entry.outcome = Outcome.NOT_RENTED;
+            entry.car = car;
+        }
+    }
+
+    public void recordReturned(Car car) {
+        Entry entry = entries.get(car.getCarNum());
+        if (entry != null) {
+            entry.outcome = Outcome.RETURNED;
+            entry.car = car;
+        }
+    }
+
+    public void recordSettledRental(String carNum, int rentalId, int userId, double totalCost) {
+        Entry entry = entries.get(carNum);
+        if (entry != null) {
+            entry.closedRentalIds.add(rentalId);
+            entry.rentalUserId = userId;
+            entry.amountDue += totalCost;
+        }
+    }
+
+    // The transaction was rolled back: nothing was returned, whatever had been recorded so far
+    public void markFailed() {
+        failed = true;
+        for (Entry entry : entries.values()) {
+            entry.outcome = Outcome.FAILED;
+            entry.closedRentalIds.clear();
+            entry.amountDue = 0;
+        }
+    }
+
+    // Getters
+    public Collection<Entry> getEntries() { return entries.values(); }
+    public Collection<String> getCarNums() { return entries.keySet(); }
+    public boolean isFailed() { return failed; }
+
+    public List<Entry> getReturned() {
+        List<Entry> returned = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.outcome == Outcome.RETURNED) {
+                returned.add(entry);
+            }
+        }
+        return returned;
+    }
+
+    public int count(Outcome outcome) {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.outcome == outcome) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return (failed ? "Check-in failed and was rolled back. " : "")
+                + "Returned: " + count(Outcome.RETURNED) + ", not rented: " + count(Outcome.NOT_RENTED)
+                + ", not found: " + count(Outcome.NOT_FOUND);
+    }
+}
@@ -1,12 +1,12 @@
 public class Car {
     private int id;
     private String carNum;
-    private String carType; // e.g., "SUV", "Sedan", "Mini"
+    private CarType carType; // e.g., SUV, Sedan, Mini
     private String carName;
-    private String status; // e.g., "available", "rented", "maintenance"
+    private CarStatus status; // AVAILABLE, RENTED or MAINTENANCE
 
     // Constructor for new cars (before ID is assigned by DB)
-    public Car(String carNum, String carType, String carName, String status) {
+    public Car(String carNum, CarType carType, String carName, CarStatus status) {
         this.carNum = carNum;
         this.carType = carType;
         this.carName = carName;
@@ -14,7 +14,7 @@ public class Car {
     }
 
     // Constructor for existing cars (retrieved from DB)
-    public Car(int id, String carNum, String carType, String carName, String status) {
+    public Car(int id, String carNum, CarType carType, String carName, CarStatus status) {
         this.id = id;
         this.carNum = carNum;
         this.carType = carType;
@@ -25,13 +25,14 @@ public class Car {
     // Getters
     public int getId() { return id; }
     public String getCarNum() { return carNum; }
-    public String getCarType() { return carType; }
+    public CarType getCarType() { return carType; }
     public String getCarName() { return carName; }
-    public String getStatus() { return status; }
+    public CarStatus getStatus() { return status; }
 
     // Setters (if needed, e.g., to update status)
-    public void setStatus(String status) { this.status = status; }
+    public void setId(int id) { this.id = id; } // Set once the database has generated the id
+    public void setStatus(CarStatus status) { this.status = status; }
     public void setCarNum(String carNum) { this.carNum = carNum; }
-    public void setCarType(String carType) { this.carType = carType; }
+    public void setCarType(CarType carType) { this.carType = carType; }
     public void setCarName(String carName) { this.carName = carName; }
 }
\ No newline at end of file
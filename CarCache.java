@@ -0,0 +1,118 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU cache of cars, looked up by id or by car number.
+// Entries are stored and handed out as copies so callers can never mutate what is cached.
+public class CarCache {
+    private final int maxSize;
+    private final LinkedHashMap<Integer, Car> byId;
+    private final Map<String, Integer> idByCarNum = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CarCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        // accessOrder = true turns the LinkedHashMap into an LRU list
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Car> eldest) {
+                if (size() > CarCache.this.maxSize) {
+                    idByCarNum.remove(eldest.getValue().getCarNum());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Car getById(int id) {
+        Car car = byId.get(id);
+        return recordLookup(car);
+    }
+
+    public synchronized Car getByCarNum(String carNum) {
+        Integer id = idByCarNum.get(carNum);
+        Car car = id == null ? null : byId.get(id);
+        return recordLookup(car);
+    }
+
+    private Car recordLookup(Car car) {
+        if (car == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(car);
+    }
+
+    public synchronized void put(Car car) {
+        if (car == null || car.getId() == 0) return;
+        Car previous = byId.put(car.getId(), copy(car));
+        if (previous != null && !previous.getCarNum().equals(car.getCarNum())) {
+            idByCarNum.remove(previous.getCarNum());
+        }
+        idByCarNum.put(car.getCarNum(), car.getId());
+    }
+
+    // Write-through for status changes; cars that are not cached stay uncached
+    public synchronized void updateStatus(int id, CarStatus status) {
+        Car cached = byId.get(id);
+        if (cached != null) {
+            cached.setStatus(status);
+        }
+    }
+
+    // Replaces a cached car with a newer copy (e.g. from another app instance); uncached cars stay uncached
+    public synchronized void refresh(Car car) {
+        if (byId.containsKey(car.getId())) {
+            put(car);
+        }
+    }
+
+    public synchronized void invalidate(int id) {
+        Car removed = byId.remove(id);
+        if (removed != null) {
+            idByCarNum.remove(removed.getCarNum());
+        }
+    }
+
+    public synchronized void invalidateByCarNum(String carNum) {
+        Integer id = idByCarNum.remove(carNum);
+        if (id != null) {
+            byId.remove(id);
+        }
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        idByCarNum.clear();
+    }
+
+    private static Car copy(Car car) {
+        return new Car(car.getId(), car.getCarNum(), car.getCarType(), car.getCarName(), car.getStatus());
+    }
+
+    // --- Metrics ---
+    public synchronized int size() { return byId.size(); }
+    public int getMaxSize() { return maxSize; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+                size(), maxSize, getHits(), getMisses(), getEvictions(), getHitRate() * 100);
+    }
+}
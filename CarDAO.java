@@ -1,39 +1,310 @@
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.postgresql.PGConnection;
 
 public class CarDAO {
+    private static final Log LOG = Log.get(CarDAO.class);
+    private static final OperationMetrics ADD_CAR = Metrics.operation("dao.car.addCar");
+    private static final OperationMetrics ADD_CARS = Metrics.operation("dao.car.addCars");
+    private static final OperationMetrics IMPORT_CSV = Metrics.operation("dao.car.importCarsFromCsv");
+    private static final OperationMetrics FIND_BY_CAR_NUM = Metrics.operation("dao.car.findCarByCarNum");
+    private static final OperationMetrics FIND_BY_ID = Metrics.operation("dao.car.findCarById");
+    private static final OperationMetrics GET_PAGE = Metrics.operation("dao.car.getCarPage");
+    private static final OperationMetrics FOR_EACH = Metrics.operation("dao.car.forEachCar");
+    private static final OperationMetrics UPDATE_STATUS = Metrics.operation("dao.car.updateCarStatus");
+    private static final OperationMetrics LOAD_VERSIONS = Metrics.operation("dao.car.loadCarVersions");
+    private static final OperationMetrics BUILD_SNAPSHOT = Metrics.operation("dao.car.buildFleetSnapshot");
+    private static final OperationMetrics BUILD_SEARCH_INDEX = Metrics.operation("index.cars.rebuild");
+
+    // Read-mostly fleet data: lookups by id / car number are served from here when possible
+    private final CarCache cache;
+
+    // Whole-fleet columnar copy for counting/filtering; status changes are written through, new cars make it stale
+    private final Object snapshotLock = new Object();   // one rebuild at a time
+    private final Object snapshotUpdates = new Object(); // guards publishing vs. changedDuringBuild
+    private volatile FleetSnapshot snapshot;
+    private volatile boolean snapshotStale = true;
+    private Map<Integer, CarStatus> changedDuringBuild; // status changes to replay onto a snapshot being built
+
+    // Name / car number search; new cars and status changes are written through
+    private final Object searchIndexLock = new Object();   // one rebuild at a time
+    private final Object searchIndexUpdates = new Object(); // guards publishing vs. the replay lists below
+    private volatile CarSearchIndex searchIndex = new CarSearchIndex();
+    private List<Car> addedDuringIndexBuild;                 // cars and status changes to replay onto an index
+    private Map<Integer, CarStatus> changedDuringIndexBuild; // being built
+
+    public CarDAO() {
+        this(new CarCache(DatabaseManager.getConfig().getInt("cache.cars.maxSize", 10_000)));
+    }
+
+    public CarDAO(CarCache cache) {
+        this.cache = cache;
+        Metrics.gauge("cache.cars.size", cache::size);
+        Metrics.gauge("cache.cars.hits", cache::getHits);
+        Metrics.gauge("cache.cars.misses", cache::getMisses);
+        Metrics.gauge("cache.cars.evictions", cache::getEvictions);
+        Metrics.gauge("index.cars.size", () -> searchIndex.size());
+        Metrics.gauge("index.cars.terms", () -> searchIndex.termCount());
+    }
 
     // Method to add a new car to the database
     public boolean addCar(Car car) {
         String sql = "INSERT INTO cars (car_num, car_type, car_name, status) VALUES (?, ?, ?, ?)";
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, car.getCarNum());
-            pstmt.setString(2, car.getCarType());
+            pstmt.setString(2, car.getCarType().getName());
             pstmt.setString(3, car.getCarName());
-            pstmt.setString(4, car.getStatus()); // e.g., "available", "rented", "maintenance"
+            pstmt.setString(4, car.getStatus().getDbValue()); // e.g., "available", "rented", "maintenance"
 
             int affectedRows = pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    car.setId(keys.getInt(1));
+                }
+            }
+            cache.put(car); // write-through
+            invalidateFleetSnapshot();
+            indexCar(car);
+            ADD_CAR.success(start);
             return affectedRows > 0;
         } catch (SQLException e) {
+            ADD_CAR.failure(start, e);
             if (e.getSQLState().startsWith("23")) { // Unique constraint violation for car_num
-                System.err.println("Error: Car number '" + car.getCarNum() + "' already exists.");
+                LOG.error("Error: Car number '{}' already exists.", car.getCarNum());
             } else {
-                System.err.println("Database error during car addition: " + e.getMessage());
+                LOG.error("Database error during car addition: {}", e.getMessage());
             }
             return false;
         }
     }
 
+    // Adds many cars in one transaction using JDBC batches of BATCH_SIZE rows.
+    // ON CONFLICT DO NOTHING turns a duplicate car_num into an update count of 0 instead of aborting the batch,
+    // so duplicates are reported per row. (Keep reWriteBatchedInserts off in db.url: it hides per-row counts.)
+    // The generated ids come back with the batch; the cars that went in are passed to insertedCars (with their
+    // ids) once the transaction has committed.
+    public BulkImportResult addCars(Collection<Car> cars, Consumer<Car> insertedCars) {
+        final int BATCH_SIZE = 1000;
+        String sql = "INSERT INTO cars (car_num, car_type, car_name, status) VALUES (?, ?, ?, ?) "
+                + "ON CONFLICT (car_num) DO NOTHING";
+        BulkImportResult result = new BulkImportResult();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Car> inserted = new ArrayList<>(); // no bigger than the collection the caller already holds
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, new String[] {"id"})) {
+                List<Car> pending = new ArrayList<>(BATCH_SIZE);
+                for (Car car : cars) {
+                    pstmt.setString(1, car.getCarNum());
+                    pstmt.setString(2, car.getCarType().getName());
+                    pstmt.setString(3, car.getCarName());
+                    pstmt.setString(4, car.getStatus().getDbValue());
+                    pstmt.addBatch();
+                    pending.add(car);
+                    if (pending.size() == BATCH_SIZE) {
+                        flushBatch(pstmt, pending, result, inserted);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    flushBatch(pstmt, pending, result, inserted);
+                }
+                conn.commit();
+                invalidateFleetSnapshot();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            inserted.forEach(insertedCars);
+        } catch (SQLException e) {
+            ADD_CARS.failure(start, e);
+            LOG.error("Database error during bulk car addition: {}", e.getMessage());
+            return failedImport();
+        }
+        ADD_CARS.success(start);
+        return result;
+    }
+
+    // Generated keys only exist for the rows that were inserted, in batch order
+    private void flushBatch(PreparedStatement pstmt, List<Car> pending, BulkImportResult result, List<Car> inserted)
+            throws SQLException {
+        int[] counts = pstmt.executeBatch();
+        try (ResultSet keys = pstmt.getGeneratedKeys()) {
+            for (int i = 0; i < counts.length; i++) {
+                Car car = pending.get(i);
+                if (counts[i] == 0) {
+                    result.recordDuplicate(car.getCarNum(), true);
+                } else if (keys.next()) {
+                    result.recordInserted(1);
+                    inserted.add(new Car(keys.getInt(1), car.getCarNum(), car.getCarType(), car.getCarName(),
+                            car.getStatus()));
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    // Streams a CSV file (header row, then car_num,car_type,car_name) into the cars table with COPY FROM STDIN.
+    // Rows are copied into a temporary staging table first, so the file is never held in memory whatever its size.
+    // Duplicates (already in the table, or repeated in the file) are passed to duplicateReporter as
+    // "row N: car_num" and skipped; everything else is inserted in the same transaction as 'available'.
+    // The INSERT's RETURNING rows are parked in a second staging table; once the import has committed they are
+    // streamed from there to insertedCars (with their ids) in fetches of 1000, so a big file is not held in memory
+    // as Car objects either, and nothing is registered for an import that rolled back.
+    public BulkImportResult importCarsFromCsv(Reader csv, Consumer<String> duplicateReporter,
+                                              Consumer<Car> insertedCars) {
+        BulkImportResult result = new BulkImportResult();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TEMP TABLE car_import ("
+                        + "row_no BIGSERIAL, car_num VARCHAR(20) NOT NULL, car_type VARCHAR(50) NOT NULL, "
+                        + "car_name VARCHAR(100) NOT NULL) ON COMMIT DROP");
+                stmt.execute("CREATE TEMP TABLE car_imported ("
+                        + "id INT, car_num VARCHAR(20), car_type VARCHAR(50), car_name VARCHAR(100), status VARCHAR(20))");
+
+                conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY car_import (car_num, car_type, car_name) FROM STDIN WITH (FORMAT csv, HEADER true)", csv);
+                canonicalizeTypes(conn);
+                stmt.execute("CREATE INDEX ON car_import (car_num)");
+                stmt.execute("ANALYZE car_import");
+
+                String duplicatesSql = "SELECT i.row_no, i.car_num FROM car_import i "
+                        + "WHERE EXISTS (SELECT 1 FROM cars c WHERE c.car_num = i.car_num) "
+                        + "OR EXISTS (SELECT 1 FROM car_import j WHERE j.car_num = i.car_num AND j.row_no < i.row_no) "
+                        + "ORDER BY i.row_no";
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery(duplicatesSql)) {
+                    while (rs.next()) {
+                        result.recordDuplicate(rs.getString("car_num"), false);
+                        duplicateReporter.accept("row " + rs.getLong("row_no") + ": " + rs.getString("car_num"));
+                    }
+                }
+
+                result.recordInserted(stmt.executeUpdate("WITH inserted AS ("
+                        + "    INSERT INTO cars (car_num, car_type, car_name, status)"
+                        + "    SELECT DISTINCT ON (car_num) car_num, car_type, car_name, 'available' FROM car_import"
+                        + "    ORDER BY car_num, row_no"
+                        + "    ON CONFLICT (car_num) DO NOTHING"
+                        + "    RETURNING id, car_num, car_type, car_name, status"
+                        + ") "
+                        + "INSERT INTO car_imported SELECT id, car_num, car_type, car_name, status FROM inserted"));
+                conn.commit();
+                invalidateFleetSnapshot();
+            } catch (SQLException | IOException e) {
+                conn.rollback(); // also drops car_imported, it was created in this transaction
+                throw e;
+            }
+            streamImportedCars(conn, insertedCars);
+        } catch (SQLException e) {
+            IMPORT_CSV.failure(start, e);
+            LOG.error("Database error during CSV car import: {}", e.getMessage());
+            return failedImport();
+        } catch (IOException e) {
+            IMPORT_CSV.failure(start);
+            LOG.error("Could not read CSV file: {}", e.getMessage());
+            return failedImport();
+        }
+        IMPORT_CSV.success(start);
+        return result;
+    }
+
+    // Passes the cars parked in car_imported to insertedCars and drops the table. The import has committed by now,
+    // so a failure here is only logged: it loses the in-memory registration, which the next start reloads anyway.
+    private static void streamImportedCars(Connection conn, Consumer<Car> insertedCars) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(1000); // a cursor, since autocommit is still off
+            try (ResultSet rs = stmt.executeQuery("SELECT id, car_num, car_type, car_name, status FROM car_imported")) {
+                while (rs.next()) {
+                    insertedCars.accept(new Car(
+                            rs.getInt("id"),
+                            rs.getString("car_num"),
+                            CarType.of(rs.getString("car_type")),
+                            rs.getString("car_name"),
+                            CarStatus.fromDb(rs.getString("status"))
+                    ));
+                }
+            }
+            stmt.execute("DROP TABLE car_imported");
+            conn.commit();
+        } catch (SQLException e) {
+            LOG.error("Database error reading back the imported cars: {}", e.getMessage());
+            try (Statement stmt = conn.createStatement()) {
+                conn.rollback();
+                stmt.execute("DROP TABLE IF EXISTS car_imported"); // the connection goes back to the pool
+                conn.commit();
+            } catch (SQLException ignored) {
+                // the connection is broken; its temp tables go with it
+            }
+        }
+    }
+
+    // Rewrites the staged type names to their canonical spelling ("suv" -> "SUV"), so cars.car_type can be
+    // compared exactly; a file only has a handful of distinct types. Known types are only looked up (find), so
+    // nothing is registered for rows that turn out to be duplicates or for an import that rolls back: a new type
+    // is spelled as first seen in the file and interned when its cars are read back after the commit.
+    private static void canonicalizeTypes(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT car_type FROM car_import GROUP BY car_type ORDER BY min(row_no)")) {
+            while (rs.next()) {
+                names.add(rs.getString("car_type"));
+            }
+        }
+        Map<String, String> newTypes = new HashMap<>(); // lower case -> spelling first seen in the file
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE car_import SET car_type = ? WHERE car_type = ?")) {
+            for (String name : names) {
+                CarType known = CarType.find(name);
+                String canonical = known != null ? known.getName()
+                        : newTypes.computeIfAbsent(name.trim().toLowerCase(Locale.ROOT), key -> name.trim());
+                if (!canonical.isEmpty() && !canonical.equals(name)) {
+                    pstmt.setString(1, canonical);
+                    pstmt.setString(2, name);
+                    pstmt.addBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static BulkImportResult failedImport() {
+        BulkImportResult failed = new BulkImportResult();
+        failed.markFailed();
+        return failed;
+    }
+
     // Method to find a car by its car number
     public Car findCarByCarNum(String carNum) {
+        long start = System.nanoTime();
+        Car cached = cache.getByCarNum(carNum);
+        if (cached != null) {
+            FIND_BY_CAR_NUM.success(start);
+            return cached;
+        }
         String sql = "SELECT id, car_num, car_type, car_name, status FROM cars WHERE car_num = ?";
         Car car = null;
+        // Always the primary: the row is cached for everyone, and a lagging replica could put a stale status there
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -44,60 +315,186 @@ public class CarDAO {
                 car = new Car(
                         rs.getInt("id"),
                         rs.getString("car_num"),
-                        rs.getString("car_type"),
+                        CarType.of(rs.getString("car_type")),
                         rs.getString("car_name"),
-                        rs.getString("status")
+                        CarStatus.fromDb(rs.getString("status"))
                 );
             }
+            FIND_BY_CAR_NUM.success(start);
         } catch (SQLException e) {
-            System.err.println("Database error during car lookup: " + e.getMessage());
+            FIND_BY_CAR_NUM.failure(start, e);
+            LOG.error("Database error during car lookup: {}", e.getMessage());
         }
+        cache.put(car);
         return car;
     }
 
-    // Method to get all available cars
-    public List<Car> getAvailableCars() {
-        List<Car> availableCars = new ArrayList<>();
-        String sql = "SELECT id, car_num, car_type, car_name, status FROM cars WHERE status = 'available'";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+    // Method to get one page of cars, keyset-paginated on id: pass 0 for the first page, then the last id seen.
+    // Cost of a page does not depend on how far into the fleet it is (no OFFSET scanning).
+    public List<Car> getCarPage(CarFilter filter, int afterId, int pageSize) {
+        return getCarPage(filter, afterId, pageSize, 0);
+    }
 
-            while (rs.next()) {
-                availableCars.add(new Car(
-                        rs.getInt("id"),
-                        rs.getString("car_num"),
-                        rs.getString("car_type"),
-                        rs.getString("car_name"),
-                        rs.getString("status")
-                ));
+    // Same, read from a replica that has replayed at least readAfterLsn when there is one
+    public List<Car> getCarPage(CarFilter filter, int afterId, int pageSize, long readAfterLsn) {
+        List<Car> cars = new ArrayList<>(Math.min(pageSize, 1000));
+        StringBuilder sql = new StringBuilder("SELECT id, car_num, car_type, car_name, status FROM cars WHERE id > ?");
+        if (filter.isAvailableOnly()) {
+            sql.append(" AND status = 'available'");
+        }
+        if (filter.getCarType() != null) {
+            sql.append(" AND car_type = ?"); // stored with the canonical spelling, so no lower() per row
+        }
+        if (filter.getNamePrefix() != null) {
+            sql.append(" AND car_name LIKE ? ESCAPE '\\'");
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getReadConnection(readAfterLsn)) {
+            conn.setAutoCommit(false); // the driver only uses a cursor (fetch size) inside a transaction
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                pstmt.setFetchSize(DatabaseManager.getConfig().getFetchSize());
+                int index = 1;
+                pstmt.setInt(index++, afterId);
+                if (filter.getCarType() != null) {
+                    CarType type = CarType.find(filter.getCarType());
+                    pstmt.setString(index++, type != null ? type.getName() : filter.getCarType());
+                }
+                if (filter.getNamePrefix() != null) {
+                    pstmt.setString(index++, escapeLike(filter.getNamePrefix()) + "%");
+                }
+                pstmt.setInt(index, pageSize);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        cars.add(new Car(
+                                rs.getInt("id"),
+                                rs.getString("car_num"),
+                                CarType.of(rs.getString("car_type")),
+                                rs.getString("car_name"),
+                                CarStatus.fromDb(rs.getString("status"))
+                        ));
+                    }
+                }
+            }
+            conn.commit();
+            GET_PAGE.success(start);
+        } catch (SQLException e) {
+            GET_PAGE.failure(start, e);
+            LOG.error("Database error retrieving cars: {}", e.getMessage());
+        }
+        return cars;
+    }
+
+    // Lazily walks all matching cars page by page; only one page is in memory (and one connection in use) at a time
+    public Iterator<Car> iterateCars(CarFilter filter, int pageSize) {
+        return new Iterator<Car>() {
+            private List<Car> page = List.of();
+            private int position;
+            private int lastId;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (position < page.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                page = getCarPage(filter, lastId, pageSize);
+                position = 0;
+                exhausted = page.size() < pageSize;
+                if (!page.isEmpty()) {
+                    lastId = page.get(page.size() - 1).getId();
+                }
+                return !page.isEmpty();
+            }
+
+            @Override
+            public Car next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
             }
+        };
+    }
+
+    public Stream<Car> streamCars(CarFilter filter, int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterateCars(filter, pageSize), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Streams every car to the consumer without holding the whole fleet in memory; false on a database error.
+    // Autocommit is switched off so the PostgreSQL driver honours the fetch size and uses a cursor.
+    public boolean forEachCar(Consumer<Car> consumer) {
+        String sql = "SELECT id, car_num, car_type, car_name, status FROM cars ORDER BY id";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(DatabaseManager.getConfig().getFetchSize());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(new Car(
+                                rs.getInt("id"),
+                                rs.getString("car_num"),
+                                CarType.of(rs.getString("car_type")),
+                                rs.getString("car_name"),
+                                CarStatus.fromDb(rs.getString("status"))
+                        ));
+                    }
+                }
+            }
+            conn.commit();
+            FOR_EACH.success(start);
+            return true;
         } catch (SQLException e) {
-            System.err.println("Database error retrieving available cars: " + e.getMessage());
+            FOR_EACH.failure(start, e);
+            LOG.error("Database error streaming cars: {}", e.getMessage());
+            return false;
         }
-        return availableCars;
     }
 
     // Method to update a car's status (e.g., to 'rented', 'available', 'maintenance')
-    public boolean updateCarStatus(int carId, String newStatus) {
+    public boolean updateCarStatus(int carId, CarStatus newStatus) {
         String sql = "UPDATE cars SET status = ? WHERE id = ?";
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setString(1, newStatus);
+            pstmt.setString(1, newStatus.getDbValue());
             pstmt.setInt(2, carId);
 
             int affectedRows = pstmt.executeUpdate();
+            cache.updateStatus(carId, newStatus); // write-through
+            updateIndexedStatus(carId, newStatus);
+            UPDATE_STATUS.success(start);
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("Database error updating car status: " + e.getMessage());
+            UPDATE_STATUS.failure(start, e);
+            cache.invalidate(carId); // outcome unknown, reload on next lookup
+            LOG.error("Database error updating car status: {}", e.getMessage());
             return false;
         }
     }
 
     public Car findCarById(int id) {
+        long start = System.nanoTime();
+        Car cached = cache.getById(id);
+        if (cached != null) {
+            FIND_BY_ID.success(start);
+            return cached;
+        }
         String sql = "SELECT id, car_num, car_type, car_name, status FROM cars WHERE id = ?";
         Car car = null;
+        // Always the primary: the row is cached for everyone, and a lagging replica could put a stale status there
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -108,14 +505,172 @@ public class CarDAO {
                 car = new Car(
                         rs.getInt("id"),
                         rs.getString("car_num"),
-                        rs.getString("car_type"),
+                        CarType.of(rs.getString("car_type")),
                         rs.getString("car_name"),
-                        rs.getString("status")
+                        CarStatus.fromDb(rs.getString("status"))
                 );
             }
+            FIND_BY_ID.success(start);
         } catch (SQLException e) {
-            System.err.println("Database error during car lookup by ID: " + e.getMessage());
+            FIND_BY_ID.failure(start, e);
+            LOG.error("Database error during car lookup by ID: {}", e.getMessage());
         }
+        cache.put(car);
         return car;
     }
+
+    // Version of every car (bumped by a trigger on each change), for FleetChangeListener; null on a database error
+    public Map<Integer, Long> loadCarVersions() {
+        Map<Integer, Long> versions = new HashMap<>();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, version FROM cars")) {
+            while (rs.next()) {
+                versions.put(rs.getInt(1), rs.getLong(2));
+            }
+            LOAD_VERSIONS.success(start);
+            return versions;
+        } catch (SQLException e) {
+            LOAD_VERSIONS.failure(start, e);
+            LOG.error("Database error loading car versions: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Called after another DAO changed a car row (e.g. the atomic rent statement in RentalDAO)
+    public void refreshCachedCar(Car car) {
+        cache.put(car);
+        updateIndexedStatus(car.getId(), car.getStatus());
+    }
+
+    // --- Fleet snapshot ---
+
+    // The columnar fleet snapshot, rebuilt first if cars were added since the last build.
+    // If the rebuild fails the previous snapshot (or an empty one) is returned and the next call tries again.
+    public FleetSnapshot getFleetSnapshot() {
+        FleetSnapshot current = snapshot;
+        if (current != null && !snapshotStale) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            if (snapshot != null && !snapshotStale) {
+                return snapshot;
+            }
+            snapshotStale = false;
+            synchronized (snapshotUpdates) {
+                changedDuringBuild = new HashMap<>();
+            }
+            long start = System.nanoTime();
+            FleetSnapshot.Builder builder = new FleetSnapshot.Builder();
+            boolean loaded = forEachCar(builder::add);
+            FleetSnapshot built = loaded ? builder.build() : null;
+            synchronized (snapshotUpdates) {
+                if (built != null) {
+                    // Rows may have been read before these changes committed; replaying them is always safe
+                    for (Map.Entry<Integer, CarStatus> change : changedDuringBuild.entrySet()) {
+                        if (!built.setStatus(change.getKey(), change.getValue())) {
+                            snapshotStale = true;
+                        }
+                    }
+                    snapshot = built;
+                }
+                changedDuringBuild = null;
+            }
+            if (built == null) {
+                BUILD_SNAPSHOT.failure(start);
+                snapshotStale = true;
+                return snapshot != null ? snapshot : new FleetSnapshot.Builder().build();
+            }
+            BUILD_SNAPSHOT.success(start);
+            return built;
+        }
+    }
+
+    // Write-through for a status change to the fleet snapshot and the search index, made here or reported by
+    // another app instance
+    public void updateIndexedStatus(int carId, CarStatus status) {
+        FleetSnapshot current;
+        synchronized (snapshotUpdates) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.put(carId, status);
+            }
+            current = snapshot;
+        }
+        if (current != null && !current.setStatus(carId, status)) {
+            snapshotStale = true; // a car the snapshot has not seen yet
+        }
+        synchronized (searchIndexUpdates) {
+            if (changedDuringIndexBuild != null) {
+                changedDuringIndexBuild.put(carId, status);
+            }
+            searchIndex.setStatus(carId, status);
+        }
+    }
+
+    // Cars were added, or state may have been missed: rebuild on next use
+    public void invalidateFleetSnapshot() {
+        snapshotStale = true;
+    }
+
+    // --- Search index ---
+
+    // (Re)loads the search index from the cars table; the current index keeps serving searches meanwhile.
+    // Cars added and statuses changed during the load are replayed onto the new index before it is published.
+    public boolean rebuildSearchIndex() {
+        synchronized (searchIndexLock) {
+            synchronized (searchIndexUpdates) {
+                addedDuringIndexBuild = new ArrayList<>();
+                changedDuringIndexBuild = new HashMap<>();
+            }
+            long start = System.nanoTime();
+            CarSearchIndex built = new CarSearchIndex();
+            boolean loaded = forEachCar(built::add);
+            synchronized (searchIndexUpdates) {
+                if (loaded) {
+                    // Rows may have been read before these changes committed; replaying them is always safe
+                    for (Car car : addedDuringIndexBuild) {
+                        built.add(car);
+                    }
+                    for (Map.Entry<Integer, CarStatus> change : changedDuringIndexBuild.entrySet()) {
+                        built.setStatus(change.getKey(), change.getValue());
+                    }
+                    searchIndex = built;
+                }
+                addedDuringIndexBuild = null;
+                changedDuringIndexBuild = null;
+            }
+            if (!loaded) {
+                BUILD_SEARCH_INDEX.failure(start);
+                return false;
+            }
+            BUILD_SEARCH_INDEX.success(start);
+            LOG.infof("Car search index loaded: %d cars, %d terms in %d ms",
+                    built.size(), built.termCount(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        }
+    }
+
+    // Write-through for a car added here or by another app instance; already indexed cars are ignored
+    public void indexCar(Car car) {
+        synchronized (searchIndexUpdates) {
+            if (addedDuringIndexBuild != null) {
+                addedDuringIndexBuild.add(car);
+            }
+            searchIndex.add(car);
+        }
+    }
+
+    public CarSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public void invalidateCachedCar(String carNum) {
+        cache.invalidateByCarNum(carNum);
+    }
+
+    // Hit/miss/eviction counters of the fleet cache
+    public CarCache getCache() {
+        return cache;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+// Optional filters for listing cars; null/blank fields mean "no filter"
+public class CarFilter {
+    private String carType;
+    private String namePrefix;
+    private boolean availableOnly;
+
+    public CarFilter(String carType, String namePrefix, boolean availableOnly) {
+        this.carType = blankToNull(carType);
+        this.namePrefix = blankToNull(namePrefix);
+        this.availableOnly = availableOnly;
+    }
+
+    public static CarFilter availableCars() {
+        return new CarFilter(null, null, true);
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value.trim();
+    }
+
+    // Getters
+    public String getCarType() { return carType; }
+    public String getNamePrefix() { return namePrefix; }
+    public boolean isAvailableOnly() { return availableOnly; }
+}
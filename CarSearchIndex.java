@@ -0,0 +1,533 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+// In-memory search over car names and car numbers, so a customer can find a car without knowing its exact number.
+// Text is lower-cased and reduced to letters and digits. A query word matches a term, best first, when it is:
+//   0 equal to it, 1 a prefix of it, 2 inside it (3+ characters), 3 one typo away (two from 9 characters)
+// A car matches when every word of the query matches a word of its name (the car ranks by its worst word), or when
+// the whole query, separators dropped, matches its car number ("ab 12" finds "AB-1234"); the better of the two counts.
+// - names repeat across the fleet, so each distinct name is kept once with its cars, and query words are matched
+//   against the few distinct name words rather than against cars
+// - car numbers are unique; they are kept as terms with their car, and a query only scans as many as it needs
+// Both sets of terms are indexed by trigram, with two start markers so short prefixes have trigrams too
+// ("ab" -> "^^a", "^ab"). Exact/prefix/substring candidates are the terms under the query's rarest trigram;
+// typo candidates share enough trigrams with it (an edit changes at most 3) and are only looked up for words of
+// 5+ characters, and not for a car number that exists as typed. Cars are handed out best tier first and the
+// search stops at the limit.
+// Cars are only ever added; status is updated in place.
+public class CarSearchIndex {
+    public static final int EXACT = 0;
+    public static final int PREFIX = 1;
+    public static final int SUBSTRING = 2;
+    public static final int TYPO = 3;
+    private static final int NO_MATCH = -1;
+    private static final char START = '\u0001';
+    private static final CarStatus[] STATUSES = CarStatus.values();
+
+    // Rows, one per car, in the order they were added
+    private int size;
+    private int[] ids = new int[1024];
+    private byte[] statuses = new byte[1024];
+    private short[] types = new short[1024];
+    private int[] nameIds = new int[1024];
+    private String[] carNums = new String[1024];
+    private int[] rowByCarId = new int[1024]; // row + 1, 0 if the car is not indexed
+
+    // Distinct names, with their words and rows
+    private final Map<String, Integer> nameIdByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<int[]> nameTerms = new ArrayList<>();
+    private final List<IntList> nameRows = new ArrayList<>();
+
+    private final Terms nameWords = new Terms(); // name words -> names having them
+    private final Terms carNumTerms = new Terms(); // compacted car numbers -> rows
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // --- Updates ---
+
+    // Adds a car that was not indexed yet; false if it already was (its status is left alone)
+    public boolean add(Car car) {
+        lock.writeLock().lock();
+        try {
+            int id = car.getId();
+            if (id <= 0 || (id < rowByCarId.length && rowByCarId[id] != 0)) return false;
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                types = Arrays.copyOf(types, capacity);
+                nameIds = Arrays.copyOf(nameIds, capacity);
+                carNums = Arrays.copyOf(carNums, capacity);
+            }
+            if (id >= rowByCarId.length) {
+                rowByCarId = Arrays.copyOf(rowByCarId, Math.max(rowByCarId.length * 2, id + 1));
+            }
+            int row = size++;
+            ids[row] = id;
+            statuses[row] = (byte) (car.getStatus() == null ? CarStatus.MAINTENANCE : car.getStatus()).ordinal();
+            types[row] = car.getCarType() == null ? -1 : car.getCarType().getCode();
+            carNums[row] = car.getCarNum();
+            nameIds[row] = nameId(car.getCarName() == null ? "" : car.getCarName());
+            nameRows.get(nameIds[row]).add(row);
+            int carNumTerm = carNumTerms.id(compact(car.getCarNum()));
+            if (carNumTerm >= 0) {
+                carNumTerms.postings.get(carNumTerm).add(row);
+            }
+            rowByCarId[id] = row + 1;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // false if the car is not indexed
+    public boolean setStatus(int carId, CarStatus status) {
+        lock.writeLock().lock();
+        try {
+            int row = rowOf(carId);
+            if (row < 0 || status == null) return false;
+            statuses[row] = (byte) status.ordinal();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int nameId(String name) {
+        Integer known = nameIdByName.get(name);
+        if (known != null) return known;
+        int id = names.size();
+        IntList words = new IntList(4);
+        for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            int term = nameWords.id(word);
+            if (term >= 0 && !words.contains(term)) {
+                words.add(term);
+                nameWords.postings.get(term).add(id);
+            }
+        }
+        names.add(name);
+        nameTerms.add(Arrays.copyOf(words.items, words.size));
+        nameRows.add(new IntList(1));
+        nameIdByName.put(name, id);
+        return id;
+    }
+
+    // --- Search ---
+
+    // Up to limit cars matching the query, best match first; type null means any type
+    public List<Car> search(String query, CarType type, boolean availableOnly, int limit) {
+        List<String> words = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            String compacted = compact(word);
+            if (!compacted.isEmpty() && !words.contains(compacted)) {
+                words.add(compacted);
+            }
+        }
+        List<Car> cars = new ArrayList<>();
+        if (words.isEmpty() || limit <= 0) return cars;
+        String carNumQuery = compact(query);
+
+        lock.readLock().lock();
+        try {
+            Page page = new Page(type, availableOnly, limit);
+            IntList[] namesByTier = rankNames(words);
+            CarNumScan carNumScan = new CarNumScan(carNumQuery);
+            for (int tier = EXACT; tier <= TYPO && !page.isFull(); tier++) {
+                for (int i = 0; i < namesByTier[tier].size && !page.isFull(); i++) {
+                    page.addAll(nameRows.get(namesByTier[tier].items[i]));
+                }
+                carNumScan.addTier(tier, page);
+            }
+            for (int i = 0; i < page.rows.size; i++) {
+                cars.add(toCar(page.rows.items[i]));
+            }
+            return cars;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Names matching every word, by their worst word's tier
+    private IntList[] rankNames(List<String> words) {
+        Map<Integer, Integer> ranks = null; // name id -> worst tier so far
+        for (String word : words) {
+            Map<Integer, Integer> best = new HashMap<>(); // name id -> best tier of this word
+            IntList terms = new IntList(16);
+            IntList tiers = new IntList(16);
+            nameWords.candidates(word, terms, tiers);
+            for (int i = 0; i < terms.size; i++) {
+                IntList namesOfTerm = nameWords.postings.get(terms.items[i]);
+                for (int j = 0; j < namesOfTerm.size; j++) {
+                    best.merge(namesOfTerm.items[j], tiers.items[i], Math::min);
+                }
+            }
+            if (ranks == null) {
+                ranks = best;
+            } else {
+                ranks.keySet().retainAll(best.keySet());
+                for (Map.Entry<Integer, Integer> rank : ranks.entrySet()) {
+                    rank.setValue(Math.max(rank.getValue(), best.get(rank.getKey())));
+                }
+            }
+            if (ranks.isEmpty()) break;
+        }
+        IntList[] byTier = new IntList[TYPO + 1];
+        for (int tier = EXACT; tier <= TYPO; tier++) {
+            byTier[tier] = new IntList(4);
+        }
+        for (Map.Entry<Integer, Integer> rank : ranks.entrySet()) {
+            byTier[rank.getValue()].add(rank.getKey());
+        }
+        for (IntList tier : byTier) {
+            Arrays.sort(tier.items, 0, tier.size); // older names first, so results do not depend on hashing
+        }
+        return byTier;
+    }
+
+    // Car numbers matching the compacted query, handed out one tier at a time. Prefix and substring matches come
+    // from the same trigram posting, which is only scanned as far as the page needs; substring hits seen on the
+    // way are kept for the next tier. Terms missing from the second rarest posting are skipped without comparing
+    // strings (car numbers share most of their trigrams, so even the rarest posting can hold thousands of them).
+    private final class CarNumScan {
+        private final String query;
+        private final IntList posting;
+        private final IntList filter;
+        private final IntList substrings = new IntList(4);
+        private boolean exactHit;
+
+        private CarNumScan(String query) {
+            this.query = query;
+            IntList[] rarest = query.isEmpty() ? new IntList[2] : carNumTerms.rarestPostings(query);
+            this.posting = rarest[0];
+            this.filter = rarest[1];
+        }
+
+        private void addTier(int tier, Page page) {
+            if (query.isEmpty() || page.isFull()) return;
+            if (tier == EXACT) {
+                Integer exact = carNumTerms.ids.get(query);
+                if (exact != null) {
+                    exactHit = true;
+                    page.addAll(carNumTerms.postings.get(exact));
+                }
+            } else if (tier == PREFIX) {
+                if (posting == null) return;
+                int from = 0; // both postings are sorted
+                for (int i = 0; i < posting.size && !page.isFull(); i++) {
+                    int term = posting.items[i];
+                    if (filter != null) {
+                        int at = Arrays.binarySearch(filter.items, from, filter.size, term);
+                        from = at < 0 ? -at - 1 : at + 1;
+                        if (at < 0) continue;
+                    }
+                    int match = tier(query, carNumTerms.terms.get(term), 0);
+                    if (match == PREFIX) {
+                        page.addAll(carNumTerms.postings.get(term));
+                    } else if (match == SUBSTRING) {
+                        substrings.add(term);
+                    }
+                }
+            } else if (tier == SUBSTRING) {
+                // Only reached when the prefix scan went through the whole posting
+                for (int i = 0; i < substrings.size && !page.isFull(); i++) {
+                    page.addAll(carNumTerms.postings.get(substrings.items[i]));
+                }
+            } else if (!exactHit) { // car numbers are unique: the one asked for exists, its neighbours were not asked for
+                carNumTerms.typoCandidates(query, term -> {
+                    page.addAll(carNumTerms.postings.get(term));
+                    return !page.isFull();
+                });
+            }
+        }
+    }
+
+    // Result rows in order, filtered, without repeats
+    private final class Page {
+        private final CarType type;
+        private final boolean availableOnly;
+        private final int limit;
+        private final IntList rows;
+        private final Set<Integer> seen = new HashSet<>();
+
+        private Page(CarType type, boolean availableOnly, int limit) {
+            this.type = type;
+            this.availableOnly = availableOnly;
+            this.limit = limit;
+            this.rows = new IntList(Math.min(limit, 64));
+        }
+
+        private void addAll(IntList candidates) {
+            for (int i = 0; i < candidates.size && rows.size < limit; i++) {
+                int row = candidates.items[i];
+                if (type != null && types[row] != type.getCode()) continue;
+                if (availableOnly && statuses[row] != CarStatus.AVAILABLE.ordinal()) continue;
+                if (seen.add(row)) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        private boolean isFull() {
+            return rows.size >= limit;
+        }
+    }
+
+    // --- Matching ---
+
+    private static int tier(String word, String term, int maxEdits) {
+        if (term.equals(word)) return EXACT;
+        if (term.startsWith(word)) return PREFIX;
+        if (word.length() >= 3 && term.contains(word)) return SUBSTRING;
+        if (maxEdits > 0 && Math.abs(term.length() - word.length()) <= maxEdits
+                && editDistance(word, term, maxEdits) <= maxEdits) {
+            return TYPO;
+        }
+        return NO_MATCH;
+    }
+
+    private static int maxEdits(String word) {
+        return word.length() < 5 ? 0 : word.length() < 9 ? 1 : 2;
+    }
+
+    // Levenshtein distance, or max + 1 as soon as it is known to exceed max
+    private static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    // Trigrams packed 16 bits per char; with the start markers there is one per character.
+    // The packed value is multiplied by an odd constant (still one key per trigram) so that Long.hashCode, which
+    // folds the high half onto the low one, does not pile similar trigrams into the same HashMap bucket.
+    private static long[] grams(String text, boolean anchored) {
+        String padded = anchored ? "" + START + START + text : text;
+        if (padded.length() < 3) return new long[0];
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            long packed = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            grams[i] = packed * 0x9E3779B97F4A7C15L;
+        }
+        return grams;
+    }
+
+    // Lower case, letters and digits only: "AB-123 cd" -> "ab123cd"
+    private static String compact(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    // Dictionary of distinct terms, each with a posting list (names or rows) and indexed by its trigrams
+    private static final class Terms {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        private final List<IntList> postings = new ArrayList<>();
+        private final Map<Long, IntList> gramTerms = new HashMap<>();
+
+        // Id of a term, registering it on first use; -1 for an empty term
+        private int id(String term) {
+            if (term.isEmpty()) return -1;
+            Integer known = ids.get(term);
+            if (known != null) return known;
+            int id = terms.size();
+            terms.add(term);
+            postings.add(new IntList(1));
+            ids.put(term, id);
+            long[] grams = grams(term, true);
+            for (int i = 0; i < grams.length; i++) {
+                IntList posting = gramTerms.computeIfAbsent(grams[i], g -> new IntList(2));
+                if (posting.size == 0 || posting.items[posting.size - 1] != id) { // once per distinct trigram
+                    posting.add(id);
+                }
+            }
+            return id;
+        }
+
+        // Every term the word matches, with its tier
+        private void candidates(String word, IntList outTerms, IntList outTiers) {
+            IntList posting = rarestPosting(word);
+            if (posting != null) {
+                for (int i = 0; i < posting.size; i++) {
+                    int match = tier(word, terms.get(posting.items[i]), 0);
+                    if (match != NO_MATCH) {
+                        outTerms.add(posting.items[i]);
+                        outTiers.add(match);
+                    }
+                }
+            }
+            typoCandidates(word, term -> {
+                outTerms.add(term);
+                outTiers.add(TYPO);
+                return true;
+            });
+        }
+
+        // Shortest posting list holding every term the word can match exactly, as a prefix or as a substring:
+        // one of its own trigrams, or for a 1-2 character word one of its start trigrams; null if one is unknown
+        private IntList rarestPosting(String word) {
+            return rarestPostings(word)[0];
+        }
+
+        // The same and the next shortest, which also holds every such term; the second is null for a word with
+        // one trigram, both are null if a trigram is unknown
+        private IntList[] rarestPostings(String word) {
+            IntList rarest = null;
+            IntList second = null;
+            for (long gram : grams(word, word.length() < 3)) {
+                IntList posting = gramTerms.get(gram);
+                if (posting == null) return new IntList[2];
+                if (rarest == null || posting.size < rarest.size) {
+                    second = rarest;
+                    rarest = posting;
+                } else if (posting != rarest && (second == null || posting.size < second.size)) {
+                    second = posting;
+                }
+            }
+            return new IntList[] {rarest, second};
+        }
+
+        // Terms within maxEdits(word) edits that do not match better. A term within e edits shares at least
+        // (trigrams of the word - 3e) trigrams with it; the "^^x" trigram, which every term starting with the same
+        // letter has, is left out of the count and the bound lowered by one.
+        // A term sharing threshold of the n counted trigrams misses at most n - threshold of them, so it is in at
+        // least one of any n - threshold + 1 of their posting lists. Candidates only come from that many of the
+        // rarest lists (common trigrams like "000" hold most of the fleet); the other lists are only probed for
+        // them. Posting lists are sorted (term ids only grow), so the rare lists are merged, one cursor each, and
+        // the rest binary-searched. Terms are passed to onTerm, oldest first, until it returns false: a common
+        // prefix like "bn0" leaves the count filter with little to work on, so a full page should end the scan.
+        private void typoCandidates(String word, IntPredicate onTerm) {
+            int edits = maxEdits(word);
+            if (edits == 0) return;
+            long[] grams = grams(word, true);
+            List<IntList> lists = new ArrayList<>(); // one per distinct trigram; empty if no term has it
+            List<Long> counted = new ArrayList<>();
+            for (int i = 1; i < grams.length; i++) {
+                if (!counted.contains(grams[i])) {
+                    counted.add(grams[i]);
+                    IntList posting = gramTerms.get(grams[i]);
+                    lists.add(posting != null ? posting : IntList.EMPTY);
+                }
+            }
+            int threshold = counted.size() - 3 * edits;
+            if (threshold < 1) return;
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            int scanned = lists.size() - threshold + 1;
+            int[] cursors = new int[scanned];
+            while (true) {
+                int term = Integer.MAX_VALUE;
+                for (int k = 0; k < scanned; k++) {
+                    IntList list = lists.get(k);
+                    if (cursors[k] < list.size && list.items[cursors[k]] < term) {
+                        term = list.items[cursors[k]];
+                    }
+                }
+                if (term == Integer.MAX_VALUE) break;
+                int shared = 0;
+                for (int k = 0; k < scanned; k++) {
+                    IntList list = lists.get(k);
+                    if (cursors[k] < list.size && list.items[cursors[k]] == term) {
+                        cursors[k]++;
+                        shared++;
+                    }
+                }
+                for (int k = scanned; k < lists.size() && shared < threshold; k++) {
+                    if (shared + lists.size() - k < threshold) break; // cannot get there any more
+                    IntList list = lists.get(k);
+                    if (Arrays.binarySearch(list.items, 0, list.size, term) >= 0) {
+                        shared++;
+                    }
+                }
+                if (shared >= threshold && tier(word, terms.get(term), edits) == TYPO && !onTerm.test(term)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // --- Row access ---
+
+    private int rowOf(int carId) {
+        return carId > 0 && carId < rowByCarId.length ? rowByCarId[carId] - 1 : -1;
+    }
+
+    private Car toCar(int row) {
+        return new Car(ids[row], carNums[row], CarType.byCode(types[row]), names.get(nameIds[row]),
+                STATUSES[statuses[row]]);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Distinct name words plus car numbers
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return nameWords.terms.size() + carNumTerms.terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Growable int array for posting lists
+    private static final class IntList {
+        private static final IntList EMPTY = new IntList(1);
+
+        private int[] items;
+        private int size;
+
+        private IntList(int capacity) {
+            items = new int[Math.max(1, capacity)];
+        }
+
+        private void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        private boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == value) return true;
+            }
+            return false;
+        }
+    }
+}
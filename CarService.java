@@ -1,32 +1,161 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class CarService {
+    private static final Log LOG = Log.get(CarService.class);
+    private static final OperationMetrics ADD_CAR = Metrics.operation("service.car.addCar");
+    private static final OperationMetrics LIST = Metrics.operation("service.car.getCarPage");
+    private static final OperationMetrics SEARCH = Metrics.operation("service.car.searchCars");
+
     private CarDAO carDAO;
+    private BookingCalendar bookingCalendar;
+    private RentalJournal journal;
 
-    public CarService(CarDAO carDAO) {
+    public CarService(CarDAO carDAO, BookingCalendar bookingCalendar, RentalJournal journal) {
         this.carDAO = carDAO;
+        this.bookingCalendar = bookingCalendar;
+        this.journal = journal;
     }
 
-    public boolean addCar(String carNum, String carType, String carName) {
-        Car newCar = new Car(carNum, carType, carName, "available"); // New cars are available by default
+    public boolean addCar(Session session, String carNum, String carType, String carName) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to add a car.");
+            return false;
+        }
+        long start = System.nanoTime();
+        if (carType == null || carType.isBlank()) {
+            LOG.info("Error: A car type is required.");
+            ADD_CAR.failure(start);
+            return false;
+        }
+        // Looked up, not registered: a typo must not become a new type (types come from the rate card and the fleet)
+        CarType type = CarType.find(carType);
+        if (type == null) {
+            LOG.info("Error: Unknown car type '{}'. Add a rate for the type first.", carType.trim());
+            ADD_CAR.failure(start);
+            return false;
+        }
+        Car newCar = new Car(carNum, type, carName, CarStatus.AVAILABLE); // New cars are available by default
         boolean success = carDAO.addCar(newCar);
         if (success) {
-            System.out.println("Car '" + carName + "' (" + carNum + ") added successfully.");
+            bookingCalendar.registerCar(newCar);
+            session.recordWrite(DatabaseManager.markWrite());
+            journal.append(RentalEvent.Type.CAR_ADDED, newCar.getId(), session.getUser().getId(), 0,
+                    null, null, newCar.getStatus());
+            LOG.info("Car '{}' ({}) added successfully.", carName, carNum);
         } else {
-            System.out.println("Failed to add car. Car number might already exist or a database error occurred.");
+            LOG.info("Failed to add car. Car number might already exist or a database error occurred.");
         }
+        ADD_CAR.record(start, success);
         return success;
     }
 
-    public List<Car> getAvailableCars() {
-        List<Car> cars = carDAO.getAvailableCars();
-        if (cars.isEmpty()) {
-            System.out.println("No available cars at the moment.");
+    // Adds a whole depot's cars in one transaction; duplicates are skipped and listed in the result
+    public BulkImportResult addCars(Session session, Collection<Car> cars) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to import cars.");
+            return rejectedImport();
+        }
+        int userId = session.getUser().getId();
+        BulkImportResult result = carDAO.addCars(cars, car -> registerImportedCar(car, userId));
+        for (String carNum : result.getDuplicateCarNums()) {
+            LOG.info("Skipped duplicate car number: {}", carNum);
+        }
+        finishImport(session, result);
+        return result;
+    }
+
+    // Bulk import from a CSV file with a header row and columns car_num,car_type,car_name
+    public BulkImportResult importCarsFromCsv(Session session, Path csvFile) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to import cars.");
+            return rejectedImport();
+        }
+        try (Reader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            int userId = session.getUser().getId();
+            BulkImportResult result = carDAO.importCarsFromCsv(reader,
+                    duplicate -> LOG.info("Skipped duplicate car number at {}", duplicate),
+                    car -> registerImportedCar(car, userId));
+            finishImport(session, result);
+            return result;
+        } catch (IOException e) {
+            LOG.info("Could not open CSV file '{}': {}", csvFile, e.getMessage());
+            return rejectedImport();
+        }
+    }
+
+    private static BulkImportResult rejectedImport() {
+        BulkImportResult failed = new BulkImportResult();
+        failed.markFailed();
+        return failed;
+    }
+
+    // Called once per car the import inserted, as the INSERT returned it with its id, after the import committed
+    private void registerImportedCar(Car car, int userId) {
+        carDAO.indexCar(car);
+        if (bookingCalendar.registerCar(car)) {
+            journal.append(RentalEvent.Type.CAR_ADDED, car.getId(), userId, 0, null, null, car.getStatus());
+        }
+    }
+
+    private void finishImport(Session session, BulkImportResult result) {
+        if (result.getInsertedCount() > 0) {
+            session.recordWrite(DatabaseManager.markWrite());
+        }
+        LOG.info("{}", result);
+    }
+
+    // One page of cars; pass the id of the last car of the previous page (0 for the first page)
+    public List<Car> getCarPage(CarFilter filter, int afterId, int pageSize) {
+        return getCarPage(null, filter, afterId, pageSize);
+    }
+
+    // Same, for a logged-in customer (session may be null): the page reflects the customer's own rents and returns
+    public List<Car> getCarPage(Session session, CarFilter filter, int afterId, int pageSize) {
+        long start = System.nanoTime();
+        long readAfterLsn = session == null ? 0 : session.getLastWriteLsn();
+        List<Car> cars = carDAO.getCarPage(filter, afterId, pageSize, readAfterLsn);
+        if (cars.isEmpty() && afterId == 0) {
+            LOG.info(filter.isAvailableOnly() ? "No available cars at the moment." : "No cars match the filter.");
         }
+        LIST.success(start);
+        return cars;
+    }
+
+    // All matching cars as a lazily-paged stream, for callers that process the fleet page by page
+    public Stream<Car> streamCars(CarFilter filter, int pageSize) {
+        return carDAO.streamCars(filter, pageSize);
+    }
+
+    // Cars whose name or car number matches the query by prefix, substring or with a typo, best match first.
+    // carType is optional; an unknown type matches nothing.
+    public List<Car> searchCars(String query, String carType, boolean availableOnly, int limit) {
+        long start = System.nanoTime();
+        CarType type = null;
+        if (carType != null && !carType.isBlank()) {
+            type = CarType.find(carType);
+            if (type == null) {
+                SEARCH.success(start);
+                return List.of();
+            }
+        }
+        List<Car> cars = carDAO.getSearchIndex().search(query, type, availableOnly, limit);
+        SEARCH.success(start);
         return cars;
     }
 
     public Car getCarByCarNumber(String carNum) {
         return carDAO.findCarByCarNum(carNum);
     }
+
+    // Whole-fleet counts and filters from the in-memory columnar snapshot, without a database round trip
+    public FleetSnapshot getFleetSnapshot() {
+        return carDAO.getFleetSnapshot();
+    }
 }
\ No newline at end of file
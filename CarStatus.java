@@ -0,0 +1,35 @@
+// Canonical car status. The database keeps the lower-case name (cars.status); everything in memory uses the enum,
+// so status checks are identity comparisons instead of equalsIgnoreCase on strings.
+public enum CarStatus {
+    AVAILABLE("available"),
+    RENTED("rented"),
+    MAINTENANCE("maintenance");
+
+    private final String dbValue;
+
+    CarStatus(String dbValue) {
+        this.dbValue = dbValue;
+    }
+
+    public String getDbValue() { return dbValue; }
+
+    // Reads cars.status. Values written by hand in another case are accepted; anything else is not rentable.
+    public static CarStatus fromDb(String value) {
+        if (value == null) return MAINTENANCE;
+        switch (value) {
+            case "available": return AVAILABLE;
+            case "rented": return RENTED;
+            case "maintenance": return MAINTENANCE;
+            default:
+                for (CarStatus status : values()) {
+                    if (status.dbValue.equalsIgnoreCase(value.trim())) return status;
+                }
+                return MAINTENANCE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return dbValue;
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonical car type. Types are open-ended (car_type_rates can price any type), so instead of a Java enum every
+// distinct type name is interned once, case-insensitively, and gets a small numeric code:
+// - instances compare with ==, and the code indexes arrays (price rows, fleet snapshot columns)
+// - the name is kept as first seen ("SUV", "Sedan"), which is what gets shown and stored
+// Types read from the database are interned with of(); user input is looked up with find() so typos do not
+// pile up in the registry.
+public final class CarType {
+    private static final ConcurrentHashMap<String, CarType> BY_NAME = new ConcurrentHashMap<>(); // exact spelling
+    private static final ConcurrentHashMap<String, CarType> BY_KEY = new ConcurrentHashMap<>();  // lower case
+    private static volatile CarType[] byCode = new CarType[8];
+    private static int count; // guarded by CarType.class
+
+    public static final CarType SUV = of("SUV");
+    public static final CarType SEDAN = of("Sedan");
+    public static final CarType MINI = of("Mini");
+
+    private final short code;
+    private final String name;
+
+    private CarType(short code, String name) {
+        this.code = code;
+        this.name = name;
+    }
+
+    // The canonical type for a name, registered on first use; null for a blank name
+    public static CarType of(String name) {
+        if (name == null) return null;
+        CarType type = BY_NAME.get(name); // the common case: spelled exactly as before, no lower-casing
+        if (type != null) return type;
+        String key = key(name);
+        if (key.isEmpty()) return null;
+        synchronized (CarType.class) {
+            type = BY_KEY.get(key);
+            if (type == null) {
+                if (count == Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct car types");
+                }
+                type = new CarType((short) count, name.trim());
+                CarType[] codes = byCode;
+                if (count == codes.length) {
+                    codes = Arrays.copyOf(codes, count * 2);
+                }
+                codes[count++] = type;
+                byCode = codes;
+                BY_KEY.put(key, type);
+            }
+            BY_NAME.put(name, type);
+            return type;
+        }
+    }
+
+    // The canonical type for a name if it is known, without registering it; null otherwise
+    public static CarType find(String name) {
+        if (name == null) return null;
+        CarType type = BY_NAME.get(name);
+        return type != null ? type : BY_KEY.get(key(name));
+    }
+
+    public static CarType byCode(int code) {
+        CarType[] codes = byCode;
+        return code >= 0 && code < codes.length ? codes[code] : null;
+    }
+
+    // Number of types registered so far; codes run from 0 to count() - 1
+    public static int count() {
+        synchronized (CarType.class) {
+            return count;
+        }
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public short getCode() { return code; }
+    public String getName() { return name; }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,318 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A small bounded JDBC connection pool.
+// - at most maxSize physical connections, minIdle of them kept warm
+// - callers wait up to acquireTimeout for a free connection
+// - idle connections above minIdle are evicted after idleTimeout
+// - connections idle for a while are validated before being handed out
+// - optional leak detection logs where a connection was borrowed if it is held too long
+// - each connection keeps its prepared statements open between borrows (see StatementCache)
+// Callers use the returned Connection exactly like a DriverManager one: close() hands it back to the pool.
+public class ConnectionPool implements AutoCloseable {
+    private static final Log LOG = Log.get(ConnectionPool.class);
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private static final OperationMetrics ACQUIRE = Metrics.operation("db.connection.acquire");
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledExecutorService housekeeper;
+
+    // Settings, read once: the config lookups (system property, environment, file) are too slow for every borrow
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionThresholdMillis; // 0 = off
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds;
+    private final int prepareThreshold;
+    private final int statementCacheSize;
+
+    public ConnectionPool(DatabaseConfig config) {
+        this(config, config.getJdbcUrl(), config.getUser(), config.getPassword());
+    }
+
+    // Same pool settings against another server (e.g. a read replica)
+    public ConnectionPool(DatabaseConfig config, String jdbcUrl, String user, String password) {
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.maxSize = config.getMaxPoolSize();
+        this.minIdle = config.getMinIdle();
+        this.acquireTimeoutMillis = config.getAcquireTimeoutMillis();
+        this.idleTimeoutMillis = config.getIdleTimeoutMillis();
+        this.leakDetectionThresholdMillis = config.getLeakDetectionThresholdMillis();
+        this.validateAfterIdleMillis = config.getValidateAfterIdleMillis();
+        this.validationTimeoutSeconds = config.getValidationTimeoutSeconds();
+        this.prepareThreshold = config.getPrepareThreshold();
+        this.statementCacheSize = config.getStatementCacheSize();
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                ACQUIRE.failure(start);
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a database connection (" + getStats() + ")", "08001");
+            }
+        } catch (InterruptedException e) {
+            ACQUIRE.failure(start);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", "08001", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAtMillis = System.currentTimeMillis();
+            if (leakDetectionThresholdMillis > 0) {
+                pooled.borrowSite = new Exception("Connection borrowed here");
+            }
+            borrowed.add(pooled);
+            Connection handle = pooled.newHandle();
+            ACQUIRE.success(start);
+            return handle;
+        } catch (SQLException | RuntimeException e) {
+            ACQUIRE.failure(start);
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return createConnection();
+    }
+
+    // Validation on borrow: only connections that sat idle for a while pay for the isValid() round trip
+    private boolean isUsable(PooledConnection pooled) {
+        long idleFor = System.currentTimeMillis() - pooled.lastReturnedAtMillis;
+        if (idleFor < validateAfterIdleMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("ApplicationName", DatabaseManager.getNodeName());
+        // pgjdbc promotes a statement to a named server-side prepared statement after this many executions
+        props.setProperty("prepareThreshold", String.valueOf(prepareThreshold));
+        Connection physical = DriverManager.getConnection(jdbcUrl, props);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(physical,
+                statementCacheSize > 0 ? new StatementCache(physical, statementCacheSize) : null);
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.borrowSite = null;
+        // A borrower can race a release and open one connection too many; shrink back on the way in
+        boolean reusable = !closed.get() && totalConnections.get() <= maxSize;
+        try {
+            if (reusable && pooled.physical.isClosed()) {
+                reusable = false;
+            }
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.lastReturnedAtMillis = System.currentTimeMillis();
+            idle.offerFirst(pooled); // LIFO keeps the hottest connections busy and lets the rest age out
+        } else {
+            discard(pooled);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being thrown away anyway
+        }
+    }
+
+    // Runs periodically: evicts idle connections, tops the pool up to minIdle and reports leaks
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator(); // oldest first
+            while (it.hasNext() && totalConnections.get() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastReturnedAtMillis > idleTimeoutMillis && idle.remove(pooled)) {
+                    discard(pooled);
+                }
+            }
+
+            while (!closed.get() && idle.size() < minIdle
+                    && totalConnections.get() < maxSize && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = createConnection();
+                    pooled.lastReturnedAtMillis = System.currentTimeMillis();
+                    idle.offerLast(pooled);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakDetectionThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    Exception site = pooled.borrowSite;
+                    if (site != null && now - pooled.borrowedAtMillis > leakDetectionThresholdMillis) {
+                        pooled.borrowSite = null; // report each leak once
+                        LOG.warn("Possible connection leak: connection held for {}ms.", now - pooled.borrowedAtMillis, site);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.warn("Connection pool could not open a warm connection: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.error("Connection pool housekeeping failed: {}", e.getMessage());
+        }
+    }
+
+    public PoolStats getStats() {
+        int total = totalConnections.get();
+        int idleCount = idle.size();
+        return new PoolStats(total, borrowed.size(), idleCount, waiters.get(), maxSize,
+                ACQUIRE.getLatency());
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+        // Borrowed connections are closed as they are handed back
+    }
+
+    // One physical connection plus the bookkeeping the pool needs for it
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturnedAtMillis;
+        private volatile long borrowedAtMillis;
+        private volatile Exception borrowSite;
+        private final StatementCache statements; // null when statement caching is off
+
+        private PooledConnection(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+
+        // Each borrow gets its own handle so a stale reference cannot touch the next borrower's session
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            if (pooled.statements != null && method.getName().equals("prepareStatement") && isCacheable(args)) {
+                int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pooled.statements.prepare((String) args[0], autoGeneratedKeys, (Connection) proxy);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys); other variants bypass the cache
+        private boolean isCacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+    }
+}
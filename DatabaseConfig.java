@@ -0,0 +1,122 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+// Holds the database and connection pool settings.
+// Values are read (lowest to highest priority) from db.properties, environment variables and -D system properties,
+// so credentials no longer have to be hard-coded in DatabaseManager.
+public class DatabaseConfig {
+    private static final Log LOG = Log.get(DatabaseConfig.class);
+    public static final String DEFAULT_CONFIG_FILE = "db.properties";
+
+    private final Properties properties;
+
+    public DatabaseConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    // Loads the config file named by -Dcar_rental.config (or ./db.properties if present)
+    public static DatabaseConfig load() {
+        Properties props = new Properties();
+        Path path = Paths.get(System.getProperty("car_rental.config", DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                props.load(in);
+            } catch (IOException e) {
+                LOG.error("Could not read database config file '{}': {}", path, e.getMessage());
+            }
+        }
+        return new DatabaseConfig(props);
+    }
+
+    // Lookup order: system property (db.url) -> environment variable (DB_URL) -> config file -> default
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid integer for '{}': {}. Using default {}.", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid number for '{}': {}. Using default {}.", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid number for '{}': {}. Using default {}.", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    // --- Connection settings ---
+    public String getJdbcUrl() { return getString("db.url", "jdbc:postgresql://localhost:5432/car_rental_db"); }
+    public String getUser() { return getString("db.user", "postgres"); }
+    public String getPassword() { return getString("db.password", ""); }
+
+    // Rows the driver fetches per round trip when streaming large result sets
+    public int getFetchSize() { return Math.max(1, getInt("db.fetchSize", 500)); }
+
+    // --- Statement reuse ---
+    // Prepared statements kept open per pooled connection (0 = no caching)
+    public int getStatementCacheSize() { return Math.max(0, getInt("db.statementCache.size", 64)); }
+    // Executions of a statement after which the driver switches to a server-side prepared statement
+    public int getPrepareThreshold() { return Math.max(0, getInt("db.prepareThreshold", 3)); }
+
+    // --- Pool settings ---
+    public int getMaxPoolSize() { return Math.max(1, getInt("db.pool.maxSize", 10)); }
+    public int getMinIdle() { return Math.min(getMaxPoolSize(), Math.max(0, getInt("db.pool.minIdle", 2))); }
+    public long getAcquireTimeoutMillis() { return getLong("db.pool.acquireTimeoutMillis", 5_000); }
+    public long getIdleTimeoutMillis() { return getLong("db.pool.idleTimeoutMillis", 600_000); }
+    public long getLeakDetectionThresholdMillis() { return getLong("db.pool.leakDetectionThresholdMillis", 0); } // 0 = off
+    public long getValidateAfterIdleMillis() { return getLong("db.pool.validateAfterIdleMillis", 1_000); }
+    public int getValidationTimeoutSeconds() { return Math.max(1, getInt("db.pool.validationTimeoutSeconds", 2)); }
+    public long getHousekeepingIntervalMillis() { return Math.max(100, getLong("db.pool.housekeepingIntervalMillis", 30_000)); }
+
+    // --- Read replicas (none unless db.replicas.urls is set) ---
+    public List<String> getReplicaUrls() {
+        List<String> urls = new ArrayList<>();
+        for (String url : getString("db.replicas.urls", "").split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+    public String getReplicaUser() { return getString("db.replicas.user", getUser()); }
+    public String getReplicaPassword() { return getString("db.replicas.password", getPassword()); }
+    public long getReplicaMaxLagMillis() { return Math.max(0, getLong("db.replicas.maxLagMillis", 5_000)); }
+    public long getReplicaCheckIntervalMillis() { return Math.max(100, getLong("db.replicas.checkIntervalMillis", 1_000)); }
+}
@@ -1,13 +1,144 @@
 import java.sql.*;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
 
 public class DatabaseManager {
-    private static final String JDBC_URL = "jdbc:postgresql://localhost:5432/car_rental_db";
-    private static final String DB_USER = "username"; // Change this
-    private static final String DB_PASSWORD = "your_password"; // Change this
+    private static final Log LOG = Log.get(DatabaseManager.class);
+
+    // Connection settings live in db.properties / DB_URL, DB_USER, DB_PASSWORD env vars (see DatabaseConfig)
+    private static final DatabaseConfig CONFIG = DatabaseConfig.load();
+    private static volatile ConnectionPool pool;
+    // Sent as application_name, so this instance can tell its own change events apart (see FleetChangeListener)
+    private static final String NODE_NAME = CONFIG.getString("node.name",
+            "car-rental-" + UUID.randomUUID().toString().substring(0, 8));
+    private static final boolean HAS_REPLICAS = !CONFIG.getReplicaUrls().isEmpty();
+    private static volatile ReplicaRouter replicas; // null until first used, and only if db.replicas.urls is set
+    private static final LongAdder MARK_WRITE_FAILURES = new LongAdder();
+
+    static {
+        // Pool occupancy for /metrics and JMX; the acquire-time histogram is the "db.connection.acquire" operation
+        Metrics.gauge("db.pool.total", () -> currentStat(PoolStats::getTotalConnections));
+        Metrics.gauge("db.pool.active", () -> currentStat(PoolStats::getActiveConnections));
+        Metrics.gauge("db.pool.idle", () -> currentStat(PoolStats::getIdleConnections));
+        Metrics.gauge("db.pool.waiting", () -> currentStat(PoolStats::getWaitingThreads));
+        Metrics.gauge("db.pool.max", () -> CONFIG.getMaxPoolSize());
+        Metrics.gauge("db.replicas.markWriteFailures", MARK_WRITE_FAILURES::sum);
+    }
 
     public static Connection getConnection() throws SQLException {
         // No need for Class.forName("org.postgresql.Driver"); due to JDBC 4.0+ automatic driver discovery
-        return DriverManager.getConnection(JDBC_URL, DB_USER, DB_PASSWORD);
+        // Connections come from a bounded pool; close() returns them instead of tearing down the session
+        return getPool().getConnection();
+    }
+
+    // For read-only queries. A replica serves it when one is healthy, within db.replicas.maxLagMillis and has
+    // replayed at least readAfterLsn (0 = any); otherwise the primary does. Never use it for a read that feeds a write.
+    public static Connection getReadConnection(long readAfterLsn) throws SQLException {
+        ReplicaRouter router = getReplicas();
+        if (router != null) {
+            Connection conn = router.getReadConnection(readAfterLsn);
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return getConnection();
+    }
+
+    public static Connection getReadConnection() throws SQLException {
+        return getReadConnection(0);
+    }
+
+    // Call after committing a write: returns the primary's WAL position, which a later getReadConnection() can pass
+    // to be sure it sees that write (read-your-writes). 0 when no replicas are configured, so it costs nothing then,
+    // and also when the position could not be read (counted in db.replicas.markWriteFailures).
+    public static long markWrite() {
+        if (getReplicas() == null) {
+            return 0;
+        }
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_current_wal_lsn() - '0/0'::pg_lsn")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            // No fence for this write rather than a fence no replica can ever pass, which would pin the session to
+            // the primary for good; replica reads may miss this one write until the replica catches up
+            MARK_WRITE_FAILURES.increment();
+            LOG.warn("Could not read the WAL position after a write; no read-your-writes fence for it: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    // A connection outside the pool, for a long-lived session such as LISTEN; the caller closes it
+    public static Connection openDedicatedConnection() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", CONFIG.getUser());
+        props.setProperty("password", CONFIG.getPassword());
+        props.setProperty("ApplicationName", NODE_NAME);
+        return DriverManager.getConnection(CONFIG.getJdbcUrl(), props);
+    }
+
+    public static String getNodeName() {
+        return NODE_NAME;
+    }
+
+    private static ReplicaRouter getReplicas() {
+        ReplicaRouter current = replicas;
+        if (current == null && HAS_REPLICAS) {
+            synchronized (DatabaseManager.class) {
+                current = replicas;
+                if (current == null) {
+                    current = new ReplicaRouter(CONFIG);
+                    replicas = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(CONFIG);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static DatabaseConfig getConfig() {
+        return CONFIG;
+    }
+
+    // Active/idle/waiting counts and the acquire-time histogram of the pool
+    public static PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    // Reads a pool statistic without creating the pool just to report on it
+    private static int currentStat(ToIntFunction<PoolStats> stat) {
+        ConnectionPool current = pool;
+        return current == null ? 0 : stat.applyAsInt(current.getStats());
+    }
+
+    // Closes all pooled connections, call once when the application exits
+    public static void shutdown() {
+        synchronized (DatabaseManager.class) {
+            if (replicas != null) {
+                replicas.close();
+                replicas = null;
+            }
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
     }
 
     public static void closeResources(Connection conn, PreparedStatement pstmt, ResultSet rs) {
@@ -16,7 +147,7 @@ public class DatabaseManager {
             if (pstmt != null) pstmt.close();
             if (conn != null) conn.close();
         } catch (SQLException e) {
-            System.err.println("Error closing database resources: " + e.getMessage());
+            LOG.error("Error closing database resources: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,239 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+// Keeps this instance's fleet state (CarCache, BookingCalendar, search index) in step with writes made by other app instances.
+// Triggers on cars and rentals (README, "Create Tables") publish every change as a small JSON event on the
+// fleet_changes channel; one dedicated connection LISTENs and applies them as they arrive, so no polling queries
+// are needed and other nodes see a change within milliseconds of its commit.
+// - every car carries a version that goes up by one per change; an event that skips a version means something
+//   was missed, and so does a lost connection: either way the cache is dropped and the calendar reloaded
+// - events caused by this instance (recognised by application_name) only update version bookkeeping, since
+//   the services have already applied them locally
+// - on connection loss it reconnects with a growing delay (fleet.sync.reconnectMillis, up to 30 s)
+// A single instance can switch it off with fleet.sync.enabled=false.
+public class FleetChangeListener {
+    private static final Log LOG = Log.get(FleetChangeListener.class);
+    private static final OperationMetrics RESYNC = Metrics.operation("fleet.sync.resync");
+    static final String CHANNEL = "fleet_changes";
+
+    private final CarDAO carDAO;
+    private final RentalDAO rentalDAO;
+    private final BookingCalendar bookingCalendar;
+    private final boolean enabled;
+    private final long reconnectMillis;
+    private final int keepaliveSeconds;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile Connection connection; // the LISTEN session, so stop() can interrupt a blocking wait
+
+    private Map<Integer, Long> versions; // car id -> last version seen; only touched by the listener thread
+    private volatile boolean connected;
+    private volatile long lastDelayMillis;
+    private final LongAdder events = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    public FleetChangeListener(CarDAO carDAO, RentalDAO rentalDAO, BookingCalendar bookingCalendar,
+                               boolean enabled, long reconnectMillis, int keepaliveSeconds) {
+        this.carDAO = carDAO;
+        this.rentalDAO = rentalDAO;
+        this.bookingCalendar = bookingCalendar;
+        this.enabled = enabled;
+        this.reconnectMillis = Math.max(10, reconnectMillis);
+        this.keepaliveSeconds = Math.max(1, keepaliveSeconds);
+
+        Metrics.gauge("fleet.sync.connected", () -> connected ? 1 : 0);
+        Metrics.gauge("fleet.sync.events", events::sum);
+        Metrics.gauge("fleet.sync.gaps", gaps::sum);
+        Metrics.gauge("fleet.sync.reconnects", reconnects::sum);
+        Metrics.gauge("fleet.sync.lastDelayMillis", () -> lastDelayMillis);
+    }
+
+    public static FleetChangeListener fromConfig(CarDAO carDAO, RentalDAO rentalDAO, BookingCalendar bookingCalendar,
+                                                 DatabaseConfig config) {
+        return new FleetChangeListener(carDAO, rentalDAO, bookingCalendar,
+                Boolean.parseBoolean(config.getString("fleet.sync.enabled", "true")),
+                config.getLong("fleet.sync.reconnectMillis", 1000),
+                config.getInt("fleet.sync.keepaliveSeconds", 10));
+    }
+
+    public synchronized void start() {
+        if (thread != null || !enabled) return;
+        running = true;
+        thread = new Thread(this::run, "fleet-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) return;
+        running = false;
+        Connection conn = connection;
+        if (conn != null) {
+            try {
+                conn.close(); // wakes up getNotifications()
+            } catch (SQLException e) {
+                // Closing anyway
+            }
+        }
+        thread.interrupt();
+        thread = null;
+    }
+
+    private void run() {
+        long delay = reconnectMillis;
+        while (running) {
+            try (Connection conn = DatabaseManager.openDedicatedConnection()) {
+                connection = conn;
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                // Listening first, then reloading: whatever changed while we were away is in the reload,
+                // and whatever changes from now on arrives as an event
+                if (!resync()) {
+                    throw new SQLException("could not reload fleet state");
+                }
+                connected = true;
+                delay = reconnectMillis;
+                listen(conn.unwrap(PGConnection.class), conn);
+            } catch (SQLException | RuntimeException e) { // a bug must not end the thread: reconnect and reload
+                if (running) {
+                    LOG.warn("Fleet change listener disconnected: {}. Reconnecting in {} ms.", e.getMessage(), delay);
+                }
+            } finally {
+                connection = null;
+                connected = false;
+            }
+            if (!running) break;
+            reconnects.increment();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                break;
+            }
+            delay = Math.min(delay * 2, 30_000);
+        }
+    }
+
+    private void listen(PGConnection pg, Connection conn) throws SQLException {
+        while (running) {
+            // Blocks until an event arrives; the timeout only exists to notice a dead connection
+            PGNotification[] notifications = pg.getNotifications(keepaliveSeconds * 1000);
+            if (notifications == null || notifications.length == 0) {
+                if (!conn.isValid(keepaliveSeconds)) {
+                    throw new SQLException("listener connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                try {
+                    apply(notification.getParameter());
+                } catch (RuntimeException e) {
+                    // Half-applied at worst (a bad field, an unknown status): count it as a missed event and reload
+                    gaps.increment();
+                    LOG.error("Could not apply fleet change event {}: {}; resynchronising.",
+                            notification.getParameter(), e.toString());
+                    if (!resync()) {
+                        throw new SQLException("could not reload fleet state");
+                    }
+                }
+            }
+        }
+    }
+
+    // Reloads versions, drops the car cache and rebuilds the booking calendar and search index; false if the
+    // database failed
+    private boolean resync() {
+        long start = System.nanoTime();
+        Map<Integer, Long> loaded = carDAO.loadCarVersions();
+        if (loaded == null) {
+            RESYNC.failure(start);
+            return false;
+        }
+        versions = loaded;
+        carDAO.getCache().clear();
+        carDAO.invalidateFleetSnapshot();
+        bookingCalendar.resync(carDAO, rentalDAO);
+        carDAO.rebuildSearchIndex();
+        RESYNC.success(start);
+        LOG.info("Fleet state synchronised: {} cars.", loaded.size());
+        return true;
+    }
+
+    private void apply(String payload) {
+        Map<String, String> event;
+        try {
+            event = Json.parseObject(payload);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Ignoring malformed fleet change event: {}", payload);
+            return;
+        }
+        events.increment();
+        String sentAt = event.get("sentAt");
+        if (sentAt != null) {
+            lastDelayMillis = Math.max(0, System.currentTimeMillis() - Long.parseLong(sentAt));
+        }
+        boolean local = DatabaseManager.getNodeName().equals(event.get("origin"));
+        if ("car".equals(event.get("kind"))) {
+            applyCarChange(event, local);
+        } else if ("rental".equals(event.get("kind")) && !local) {
+            applyRentalChange(event);
+        }
+    }
+
+    private void applyCarChange(Map<String, String> event, boolean local) {
+        int id = Integer.parseInt(event.get("id"));
+        long version = Long.parseLong(event.get("version"));
+        Long known = versions.get(id);
+        if (known != null && version <= known) {
+            return; // already part of the last reload
+        }
+        if (known != null ? version > known + 1 : event.get("oldStatus") != null) {
+            // An update we never saw the previous state of: some event went missing
+            gaps.increment();
+            LOG.warn("Fleet change for car {} skipped from version {} to {}; resynchronising.", id, known, version);
+            if (!resync()) {
+                versions.put(id, version);
+            }
+            return;
+        }
+        versions.put(id, version);
+        if (local) return;
+
+        Car car = new Car(id, event.get("carNum"), CarType.of(event.get("carType")), event.get("carName"),
+                CarStatus.fromDb(event.get("status")));
+        String oldStatus = event.get("oldStatus");
+        if (oldStatus == null) {
+            bookingCalendar.registerCar(car); // added on another node
+            carDAO.invalidateFleetSnapshot();
+            carDAO.indexCar(car);
+        } else {
+            carDAO.getCache().refresh(car);
+            carDAO.updateIndexedStatus(id, car.getStatus());
+            if (CarStatus.fromDb(oldStatus) == CarStatus.RENTED && car.getStatus() == CarStatus.AVAILABLE) {
+                bookingCalendar.release(id, LocalDate.now()); // returned on another node
+            }
+        }
+    }
+
+    private void applyRentalChange(Map<String, String> event) {
+        int rentalId = Integer.parseInt(event.get("id"));
+        int carId = Integer.parseInt(event.get("carId"));
+        String status = event.get("status");
+        if ("active".equalsIgnoreCase(status) || "overdue".equalsIgnoreCase(status)) {
+            LocalDate startDate = LocalDate.parse(event.get("startDate"));
+            LocalDate endDate = LocalDate.parse(event.get("endDate"));
+            if (!bookingCalendar.applyBooking(carId, rentalId, startDate, endDate)) {
+                LOG.debug("Rental {} from another node overlaps a booking held here.", rentalId);
+            }
+        } else {
+            bookingCalendar.endBooking(carId, rentalId, LocalDate.now());
+        }
+    }
+}
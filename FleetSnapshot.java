@@ -0,0 +1,241 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Read-optimised, columnar copy of the whole fleet for counting and filtering without touching the database.
+// One row per car, ordered by id, stored as parallel primitive arrays instead of Car objects:
+// - ids (int), status (byte, CarStatus ordinal), type (short, CarType code)
+// - names are dictionary-encoded: each row holds an index into a sorted array of the distinct names,
+//   so a name prefix is a contiguous range of codes
+// - car numbers are unique, so they are packed back to back into one char array with an offset per row
+// On top of that every status and every type has a bitmap (one bit per row). Counting is popcount over
+// AND-ed bitmap words and filtering writes row numbers into a caller-supplied int[]; neither allocates per row.
+// Cars are only materialised on request (toCar). Status is the one column that changes in place (setStatus);
+// new cars need a rebuild, which CarDAO does lazily.
+public class FleetSnapshot {
+    private static final CarStatus[] STATUSES = CarStatus.values();
+
+    private final int size;
+    private final int[] ids;
+    private final byte[] statuses;
+    private final short[] types;
+    private final int[] nameCodes;
+    private final String[] names;      // distinct names, sorted
+    private final char[] carNumChars;
+    private final int[] carNumOffsets; // row i is carNumChars[offsets[i] .. offsets[i + 1])
+
+    private final long[] all;             // every row
+    private final long[][] statusBits;    // [status ordinal][word]
+    private final long[][] typeBits;      // [type code][word]; types registered after the build have no row
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FleetSnapshot(Builder b) {
+        size = b.size;
+        ids = Arrays.copyOf(b.ids, size);
+        statuses = Arrays.copyOf(b.statuses, size);
+        types = Arrays.copyOf(b.types, size);
+        carNumChars = Arrays.copyOf(b.carNumChars, b.carNumLength);
+        carNumOffsets = Arrays.copyOf(b.carNumOffsets, size + 1);
+
+        // Dictionary for names: sort the distinct values, then map each row's name to its position
+        String[] distinct = Arrays.copyOf(b.rowNames, size);
+        Arrays.sort(distinct);
+        int n = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (n == 0 || !distinct[i].equals(distinct[n - 1])) {
+                distinct[n++] = distinct[i];
+            }
+        }
+        names = Arrays.copyOf(distinct, n);
+        nameCodes = new int[size];
+        for (int row = 0; row < size; row++) {
+            nameCodes[row] = Arrays.binarySearch(names, b.rowNames[row]);
+        }
+
+        int words = (size + 63) >>> 6;
+        all = new long[words];
+        statusBits = new long[STATUSES.length][words];
+        typeBits = new long[CarType.count()][];
+        for (int row = 0; row < size; row++) {
+            long bit = 1L << row;
+            all[row >>> 6] |= bit;
+            statusBits[statuses[row]][row >>> 6] |= bit;
+            if (types[row] >= 0) {
+                if (typeBits[types[row]] == null) {
+                    typeBits[types[row]] = new long[words];
+                }
+                typeBits[types[row]][row >>> 6] |= bit;
+            }
+        }
+    }
+
+    // --- Counting and filtering ---
+
+    public int size() { return size; }
+
+    // Cars with the given status and type; null matches any
+    public int count(CarStatus status, CarType type) {
+        lock.readLock().lock();
+        try {
+            long[] statusWords = status == null ? all : statusBits[status.ordinal()];
+            long[] typeWords = type == null ? all : typeWords(type);
+            if (typeWords == null) return 0;
+            int count = 0;
+            for (int w = 0; w < all.length; w++) {
+                count += Long.bitCount(statusWords[w] & typeWords[w]);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Writes the numbers of matching rows, starting at fromRow, into rows and returns how many were written.
+    // status/type/namePrefix may be null to match anything; the prefix is case-sensitive like the cars listing.
+    // When the buffer fills up, continue with fromRow = last row written + 1.
+    public int select(CarStatus status, CarType type, String namePrefix, int fromRow, int[] rows) {
+        lock.readLock().lock();
+        try {
+            long[] statusWords = status == null ? all : statusBits[status.ordinal()];
+            long[] typeWords = type == null ? all : typeWords(type);
+            if (typeWords == null || rows.length == 0 || fromRow >= size) return 0;
+            int nameFrom = 0;
+            int nameTo = names.length;
+            if (namePrefix != null) {
+                nameFrom = firstNameAtLeast(namePrefix);
+                nameTo = firstNameWithoutPrefix(namePrefix, nameFrom);
+                if (nameFrom == nameTo) return 0;
+            }
+            int found = 0;
+            int start = Math.max(0, fromRow);
+            for (int w = start >>> 6; w < all.length; w++) {
+                long bits = statusWords[w] & typeWords[w];
+                if (w == start >>> 6) {
+                    bits &= -1L << (start & 63); // skip rows before fromRow in the first word
+                }
+                while (bits != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (nameCodes[row] >= nameFrom && nameCodes[row] < nameTo) {
+                        rows[found++] = row;
+                        if (found == rows.length) return found;
+                    }
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] typeWords(CarType type) {
+        return type.getCode() < typeBits.length ? typeBits[type.getCode()] : null;
+    }
+
+    private int firstNameAtLeast(String prefix) {
+        int i = Arrays.binarySearch(names, prefix);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // Names with the prefix are contiguous from 'from' on, so the end of the range is a binary search too
+    private int firstNameWithoutPrefix(String prefix, int from) {
+        int lo = from;
+        int hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (names[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // --- Row access ---
+
+    // Row of a car id, or -1 if the car was not in the fleet when the snapshot was built
+    public int rowOf(int carId) {
+        int row = Arrays.binarySearch(ids, 0, size, carId);
+        return row < 0 ? -1 : row;
+    }
+
+    public int idAt(int row) { return ids[row]; }
+    public CarType typeAt(int row) { return CarType.byCode(types[row]); }
+    public String nameAt(int row) { return names[nameCodes[row]]; }
+
+    public CarStatus statusAt(int row) {
+        lock.readLock().lock();
+        try {
+            return STATUSES[statuses[row]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String carNumAt(int row) {
+        return new String(carNumChars, carNumOffsets[row], carNumOffsets[row + 1] - carNumOffsets[row]);
+    }
+
+    public Car toCar(int row) {
+        return new Car(idAt(row), carNumAt(row), typeAt(row), nameAt(row), statusAt(row));
+    }
+
+    // --- Updates ---
+
+    // Moves a car to another status bitmap; false if the car is not in this snapshot
+    public boolean setStatus(int carId, CarStatus status) {
+        int row = rowOf(carId);
+        if (row < 0 || status == null) return false;
+        lock.writeLock().lock();
+        try {
+            int word = row >>> 6;
+            long bit = 1L << row;
+            statusBits[statuses[row]][word] &= ~bit;
+            statusBits[status.ordinal()][word] |= bit;
+            statuses[row] = (byte) status.ordinal();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Collects cars in id order (as CarDAO.forEachCar delivers them) into growing column arrays
+    public static class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private byte[] statuses = new byte[1024];
+        private short[] types = new short[1024];
+        private String[] rowNames = new String[1024];
+        private char[] carNumChars = new char[8 * 1024];
+        private int[] carNumOffsets = new int[1025];
+        private int carNumLength;
+
+        public void add(Car car) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                types = Arrays.copyOf(types, capacity);
+                rowNames = Arrays.copyOf(rowNames, capacity);
+                carNumOffsets = Arrays.copyOf(carNumOffsets, capacity + 1);
+            }
+            String carNum = car.getCarNum();
+            if (carNumLength + carNum.length() > carNumChars.length) {
+                carNumChars = Arrays.copyOf(carNumChars, Math.max(carNumChars.length * 2, carNumLength + carNum.length()));
+            }
+            carNum.getChars(0, carNum.length(), carNumChars, carNumLength);
+            carNumLength += carNum.length();
+
+            ids[size] = car.getId();
+            statuses[size] = (byte) (car.getStatus() == null ? CarStatus.MAINTENANCE : car.getStatus()).ordinal();
+            types[size] = car.getCarType() == null ? -1 : car.getCarType().getCode();
+            rowNames[size] = car.getCarName() == null ? "" : car.getCarName();
+            size++;
+            carNumOffsets[size] = carNumLength;
+        }
+
+        public FleetSnapshot build() {
+            return new FleetSnapshot(this);
+        }
+    }
+}
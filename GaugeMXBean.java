@@ -0,0 +1,5 @@
+// JMX view of a gauge (a value read on demand, e.g. active pool connections)
+public interface GaugeMXBean {
+    String getName();
+    long getValue();
+}
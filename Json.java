@@ -0,0 +1,168 @@
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal JSON support for the HTTP API: writes maps/lists/scalars and parses flat request objects.
+// Kept in-house so the application still needs nothing but the PostgreSQL driver.
+public class Json {
+
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(value, out);
+        return out.toString();
+    }
+
+    private static void write(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String || value instanceof LocalDate) {
+            writeString(value.toString(), out);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) out.append(',');
+                first = false;
+                writeString(String.valueOf(entry.getKey()), out);
+                out.append(':');
+                write(entry.getValue(), out);
+            }
+            out.append('}');
+        } else if (value instanceof List) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : (List<?>) value) {
+                if (!first) out.append(',');
+                first = false;
+                write(item, out);
+            }
+            out.append(']');
+        } else {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static void writeString(String s, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // Parses a flat JSON object whose values are strings, numbers, booleans or null.
+    // Numbers are returned as their text so callers can parse them as int/long/double.
+    public static Map<String, String> parseObject(String json) {
+        Map<String, String> result = new LinkedHashMap<>();
+        Parser p = new Parser(json == null ? "" : json);
+        p.skipWhitespace();
+        if (p.atEnd()) return result;
+        p.expect('{');
+        p.skipWhitespace();
+        if (p.peek() == '}') {
+            p.pos++;
+            return result;
+        }
+        while (true) {
+            p.skipWhitespace();
+            String key = p.readString();
+            p.skipWhitespace();
+            p.expect(':');
+            p.skipWhitespace();
+            result.put(key, p.readScalar());
+            p.skipWhitespace();
+            char c = p.next();
+            if (c == '}') break;
+            if (c != ',') throw new IllegalArgumentException("Expected ',' or '}' at position " + (p.pos - 1));
+        }
+        return result;
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        boolean atEnd() { return pos >= s.length(); }
+
+        char peek() {
+            if (atEnd()) throw new IllegalArgumentException("Unexpected end of JSON");
+            return s.charAt(pos);
+        }
+
+        char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        void expect(char expected) {
+            char c = next();
+            if (c != expected) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at position " + (pos - 1));
+            }
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char esc = next();
+                switch (esc) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw new IllegalArgumentException("Bad unicode escape");
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(esc); // \" \\ \/
+                }
+            }
+        }
+
+        String readScalar() {
+            char c = peek();
+            if (c == '"') return readString();
+            int start = pos;
+            while (!atEnd() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            String token = s.substring(start, pos);
+            if (token.isEmpty() || c == '{' || c == '[') {
+                throw new IllegalArgumentException("Only flat objects are supported (position " + start + ")");
+            }
+            return token.equals("null") ? null : token;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous logger used by the DAOs and services instead of System.out/System.err.
+// - callers claim a slot in a fixed ring of reusable events with one CAS (no lock, no allocation) and return;
+//   a single background thread formats the events and writes them in batches, one flush per batch
+// - messages are patterns with {} placeholders (or printf formats for the *f methods), filled in on the writer
+//   thread, so a disabled level costs one comparison and an enabled one does no string work on the caller
+// - the console gets the bare message (INFO and below on stdout, WARN and ERROR on stderr, as before); the optional
+//   log.file gets timestamp, level, thread and logger as well
+// - when the ring is full callers wait for the writer rather than drop a message (counted in log.waits)
+// Pass values that do not change afterwards as arguments: they are turned into text later, on the writer thread.
+// A Throwable left over after the last {} is written with its stack trace.
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+    private static volatile Ring ring = new Ring(DEFAULT_CAPACITY);
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static volatile boolean console = true;
+    private static volatile Path file;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-shutdown"));
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log get(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    // Applies log.level, log.console, log.file and log.bufferSize; called once at startup
+    public static void configure(DatabaseConfig config) {
+        try {
+            threshold = Level.valueOf(config.getString("log.level", "INFO").trim().toUpperCase(Locale.ROOT)).ordinal();
+        } catch (IllegalArgumentException e) {
+            Log.get(Log.class).warn("Unknown log.level '{}', using INFO", config.getString("log.level", ""));
+        }
+        console = Boolean.parseBoolean(config.getString("log.console", "true"));
+        String path = config.getString("log.file", "").trim();
+        file = path.isEmpty() ? null : Paths.get(path);
+        int capacity = Integer.highestOneBit(Math.max(64, config.getInt("log.bufferSize", DEFAULT_CAPACITY)));
+        if (capacity != ring.capacity) {
+            Ring old = ring;
+            old.awaitWritten(old.tail.get());
+            ring = new Ring(capacity);
+            old.stop();
+        }
+
+        Metrics.gauge("log.events", () -> ring.events);
+        Metrics.gauge("log.batches", () -> ring.batches);
+        Metrics.gauge("log.waits", () -> ring.waits.sum());
+        Metrics.gauge("log.pending", () -> ring.tail.get() - ring.written);
+    }
+
+    // Blocks until everything logged so far has been written (e.g. before the console shows a prompt)
+    public static void flush() {
+        Ring current = ring;
+        current.awaitWritten(current.tail.get());
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    // --- DEBUG ---
+    public void debug(String message) { log(Level.DEBUG, false, message, 0, null, null, null, null); }
+    public void debug(String pattern, Object a) { log(Level.DEBUG, false, pattern, 1, a, null, null, null); }
+    public void debug(String pattern, Object a, Object b) { log(Level.DEBUG, false, pattern, 2, a, b, null, null); }
+    public void debug(String pattern, Object a, Object b, Object c) { log(Level.DEBUG, false, pattern, 3, a, b, c, null); }
+    public void debug(String pattern, Object... args) { log(Level.DEBUG, false, pattern, -1, null, null, null, args); }
+
+    // --- INFO ---
+    public void info(String message) { log(Level.INFO, false, message, 0, null, null, null, null); }
+    public void info(String pattern, Object a) { log(Level.INFO, false, pattern, 1, a, null, null, null); }
+    public void info(String pattern, Object a, Object b) { log(Level.INFO, false, pattern, 2, a, b, null, null); }
+    public void info(String pattern, Object a, Object b, Object c) { log(Level.INFO, false, pattern, 3, a, b, c, null); }
+    public void info(String pattern, Object... args) { log(Level.INFO, false, pattern, -1, null, null, null, args); }
+    public void infof(String format, Object... args) { log(Level.INFO, true, format, -1, null, null, null, args); }
+
+    // --- WARN ---
+    public void warn(String message) { log(Level.WARN, false, message, 0, null, null, null, null); }
+    public void warn(String pattern, Object a) { log(Level.WARN, false, pattern, 1, a, null, null, null); }
+    public void warn(String pattern, Object a, Object b) { log(Level.WARN, false, pattern, 2, a, b, null, null); }
+    public void warn(String pattern, Object a, Object b, Object c) { log(Level.WARN, false, pattern, 3, a, b, c, null); }
+    public void warn(String pattern, Object... args) { log(Level.WARN, false, pattern, -1, null, null, null, args); }
+
+    // --- ERROR ---
+    public void error(String message) { log(Level.ERROR, false, message, 0, null, null, null, null); }
+    public void error(String pattern, Object a) { log(Level.ERROR, false, pattern, 1, a, null, null, null); }
+    public void error(String pattern, Object a, Object b) { log(Level.ERROR, false, pattern, 2, a, b, null, null); }
+    public void error(String pattern, Object a, Object b, Object c) { log(Level.ERROR, false, pattern, 3, a, b, c, null); }
+    public void error(String pattern, Object... args) { log(Level.ERROR, false, pattern, -1, null, null, null, args); }
+
+    private void log(Level level, boolean printf, String pattern, int argCount,
+                     Object a, Object b, Object c, Object[] more) {
+        if (level.ordinal() < threshold) return;
+        ring.publish(this, level, printf, pattern, argCount, a, b, c, more);
+    }
+
+    // One reusable slot of the ring. seq == index + 1 means "filled, ready to write"; index + capacity means
+    // "free for the producer of that position" (bounded multi-producer queue with per-slot sequence numbers)
+    private static final class Event {
+        private volatile long seq;
+        private long timestamp;
+        private Level level;
+        private Log logger;
+        private String thread;
+        private boolean printf;
+        private String pattern;
+        private int argCount;
+        private Object a, b, c;
+        private Object[] more;
+
+        private void clear() {
+            logger = null;
+            thread = null;
+            pattern = null;
+            a = b = c = null;
+            more = null;
+        }
+    }
+
+    private static final class Ring implements Runnable {
+        private final int capacity;
+        private final int mask;
+        private final Event[] slots;
+        private final AtomicLong tail = new AtomicLong(); // next position to claim (producers)
+        private long head;                                // next position to write (writer thread only)
+        private volatile long written;                    // everything below this has reached the sinks
+        private volatile boolean sleeping;
+        private volatile boolean stopped;
+        private final Thread writer;
+
+        // Stats for the gauges; events/batches are only written by the writer thread
+        private volatile long events;
+        private volatile long batches;
+        private final LongAdder waits = new LongAdder();
+
+        // Writer-thread state
+        private final StringBuilder line = new StringBuilder(256);
+        private final StringBuilder out = new StringBuilder(8192);
+        private final StringBuilder err = new StringBuilder(1024);
+        private final StringBuilder toFile = new StringBuilder(8192);
+        private BufferedWriter fileWriter;
+        private Path openFile;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.slots = new Event[capacity];
+            for (int i = 0; i < capacity; i++) {
+                slots[i] = new Event();
+                slots[i].seq = i;
+            }
+            writer = new Thread(this, "log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        private void publish(Log logger, Level level, boolean printf, String pattern, int argCount,
+                             Object a, Object b, Object c, Object[] more) {
+            long pos;
+            Event event;
+            while (true) {
+                pos = tail.get();
+                event = slots[(int) (pos & mask)];
+                long diff = event.seq - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) break;
+                } else if (diff < 0) {
+                    // Full: the writer is behind, wait for it instead of losing the message
+                    waits.increment();
+                    LockSupport.unpark(writer);
+                    LockSupport.parkNanos(50_000);
+                }
+                // diff > 0: another producer took this position, try the next one
+            }
+            event.timestamp = System.currentTimeMillis();
+            event.level = level;
+            event.logger = logger;
+            event.thread = Thread.currentThread().getName();
+            event.printf = printf;
+            event.pattern = pattern;
+            event.argCount = argCount;
+            event.a = a;
+            event.b = b;
+            event.c = c;
+            event.more = more;
+            event.seq = pos + 1; // publish
+            if (sleeping) {
+                LockSupport.unpark(writer);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                if (drain() > 0) {
+                    continue;
+                }
+                if (stopped) {
+                    drain(); // anything published while the ring was being replaced
+                    closeFile();
+                    return;
+                }
+                sleeping = true;
+                if (!hasPending()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+
+        private boolean hasPending() {
+            return slots[(int) (head & mask)].seq == head + 1;
+        }
+
+        // Writes every published event in one batch; returns how many there were
+        private int drain() {
+            int count = 0;
+            boolean toFileEnabled = file != null;
+            while (count < capacity) {
+                Event event = slots[(int) (head & mask)];
+                if (event.seq != head + 1) break;
+                format(event);
+                if (console) {
+                    StringBuilder target = event.level.ordinal() >= Level.WARN.ordinal() ? err : out;
+                    if (target == err && out.length() > 0) {
+                        writeConsole(); // keep stdout/stderr lines in the order they were logged
+                    }
+                    target.append(line).append(System.lineSeparator());
+                    if (target == out && err.length() > 0) {
+                        writeConsole();
+                    }
+                }
+                if (toFileEnabled) {
+                    toFile.append(Instant.ofEpochMilli(event.timestamp)).append(' ')
+                            .append(event.level).append(event.level.name().length() == 4 ? "  [" : " [")
+                            .append(event.thread).append("] ").append(event.logger.name).append(" - ")
+                            .append(line).append(System.lineSeparator());
+                }
+                event.clear();
+                event.seq = head + capacity; // free for reuse
+                head++;
+                count++;
+            }
+            if (count > 0) {
+                writeConsole();
+                writeFile();
+                events += count;
+                batches++;
+                written = head;
+            }
+            return count;
+        }
+
+        private void format(Event event) {
+            line.setLength(0);
+            try {
+                if (event.printf) {
+                    line.append(String.format(event.pattern, event.more));
+                } else if (event.argCount == 0) {
+                    line.append(event.pattern);
+                } else {
+                    appendPattern(event);
+                }
+            } catch (RuntimeException e) {
+                line.setLength(0);
+                line.append(event.pattern).append(" [log format error: ").append(e).append(']');
+            }
+        }
+
+        // Replaces each {} with the next argument
+        private void appendPattern(Event event) {
+            String pattern = event.pattern;
+            int argIndex = 0;
+            int argTotal = event.argCount >= 0 ? event.argCount : (event.more == null ? 0 : event.more.length);
+            int from = 0;
+            int at;
+            while ((at = pattern.indexOf("{}", from)) >= 0 && argIndex < argTotal) {
+                line.append(pattern, from, at);
+                line.append(arg(event, argIndex));
+                argIndex++;
+                from = at + 2;
+            }
+            line.append(pattern, from, pattern.length());
+            if (argIndex < argTotal && arg(event, argTotal - 1) instanceof Throwable) {
+                StringWriter trace = new StringWriter();
+                ((Throwable) arg(event, argTotal - 1)).printStackTrace(new PrintWriter(trace));
+                line.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+            }
+        }
+
+        private static Object arg(Event event, int index) {
+            if (event.argCount < 0) return event.more[index];
+            if (index == 0) return event.a;
+            if (index == 1) return event.b;
+            return event.c;
+        }
+
+        private void writeConsole() {
+            writeTo(System.out, out);
+            writeTo(System.err, err);
+        }
+
+        private static void writeTo(PrintStream stream, StringBuilder text) {
+            if (text.length() == 0) return;
+            stream.print(text);
+            stream.flush();
+            text.setLength(0);
+        }
+
+        private void writeFile() {
+            if (toFile.length() == 0) return;
+            Path target = file;
+            try {
+                if (!target.equals(openFile)) {
+                    closeFile();
+                    fileWriter = Files.newBufferedWriter(target, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    openFile = target;
+                }
+                fileWriter.append(toFile);
+                fileWriter.flush();
+            } catch (IOException e) {
+                System.err.println("Could not write log file " + target + ": " + e.getMessage());
+                closeFile();
+            } finally {
+                toFile.setLength(0);
+            }
+        }
+
+        private void closeFile() {
+            if (fileWriter == null) return;
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                // Nothing left to report it to
+            }
+            fileWriter = null;
+            openFile = null;
+        }
+
+        // Waits (at most a couple of seconds) until the writer got past position target
+        private void awaitWritten(long target) {
+            if (Thread.currentThread() == writer) return;
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (written < target && writer.isAlive() && System.nanoTime() < deadline) {
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(50_000);
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            LockSupport.unpark(writer);
+        }
+    }
+}
@@ -1,27 +1,36 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Scanner;
 
 public class Main {
+    private static final Log LOG = Log.get(Main.class);
 
     private static Scanner scanner = new Scanner(System.in);
     private static AuthService authService;
     private static CarService carService;
     private static RentalService rentalService;
-    private static CarDAO carDAO;
+    private static RentalJournal rentalJournal; // Append-only history of rentals, see RentalJournal
+    private static OverdueRentalSweeper overdueSweeper; // Marks unreturned rentals overdue in the background
+    private static RentalPartitionManager rentalPartitions; // Monthly partitions / archive of rentals, hot window
+    private static FleetChangeListener fleetChanges; // Applies other instances' car/rental changes to local state
+    private static Session currentSession; // Session of the customer using this console
 
     public static void main(String[] args) {
-        // Initialize DAOs
-        UserDAO userDAO = new UserDAO();
-        carDAO = new CarDAO();
-        RentalDAO rentalDAO = new RentalDAO();
+        BookingCalendar bookingCalendar = initServices();
+        overdueSweeper.start();
+        rentalPartitions.start();
+        fleetChanges.start();
 
-        // Initialize Services
-        authService = new AuthService(userDAO);
-        carService = new CarService(carDAO);
-        rentalService = new RentalService(rentalDAO, carDAO);
+        // "--server" runs the HTTP/JSON API instead of the console menus
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(bookingCalendar);
+            return;
+        }
 
+        Log.flush();
         System.out.println("------------------------------------");
         System.out.println("  Welcome to the Car Rental System! ");
         System.out.println("------------------------------------");
@@ -29,17 +38,85 @@ public class Main {
         runAuthenticationMenu();
 
         // If a user is logged in, show the main menu
-        if (authService.getLoggedInUser() != null) {
+        if (currentSession != null) {
             runMainMenu();
         }
 
+        Log.flush();
         System.out.println("\nThank you for using the Car Rental System. Bye!");
         scanner.close(); // Close the scanner when done
+        overdueSweeper.stop();
+        rentalPartitions.stop();
+        fleetChanges.stop();
+        rentalJournal.close(); // Force the last journal entries to disk
+        DatabaseManager.shutdown(); // Release pooled database connections
+    }
+
+    // Wires DAOs and services (also used by the benchmarks); returns the booking calendar for housekeeping
+    static BookingCalendar initServices() {
+        Log.configure(DatabaseManager.getConfig());
+
+        // Initialize DAOs
+        UserDAO userDAO = new UserDAO();
+        CarDAO carDAO = new CarDAO();
+        RentalDAO rentalDAO = new RentalDAO();
+
+        // Find the hot window of rentals (and create upcoming partitions) before anything queries them
+        rentalPartitions = RentalPartitionManager.fromConfig(rentalDAO, DatabaseManager.getConfig());
+        rentalPartitions.runOnce();
+
+        // Build the in-memory booking calendar from the cars and upcoming rentals
+        BookingCalendar bookingCalendar = new BookingCalendar();
+        bookingCalendar.load(carDAO, rentalDAO);
+        // Index car names and numbers for search
+        carDAO.rebuildSearchIndex();
+        // ...and keep it all (and the car cache) in step with writes made by other app instances
+        fleetChanges = FleetChangeListener.fromConfig(carDAO, rentalDAO, bookingCalendar, DatabaseManager.getConfig());
+
+        // Compile the rate tables; they are re-read periodically so price changes need no restart
+        PricingEngine pricingEngine = new PricingEngine(new PricingDAO());
+        pricingEngine.reload();
+        pricingEngine.startAutoReload(DatabaseManager.getConfig().getLong("pricing.reloadSeconds", 300));
+
+        rentalJournal = RentalJournal.fromConfig(DatabaseManager.getConfig());
+
+        // Initialize Services
+        SessionStore sessionStore = SessionStore.fromConfig(DatabaseManager.getConfig());
+        PasswordHasher passwordHasher = PasswordHasher.fromConfig(DatabaseManager.getConfig());
+        UserIndex userIndex = UserIndex.fromConfig(userDAO, DatabaseManager.getConfig());
+        authService = new AuthService(userDAO, sessionStore, passwordHasher, userIndex);
+        carService = new CarService(carDAO, bookingCalendar, rentalJournal);
+        RentalSettlement settlement = RentalSettlement.fromConfig(pricingEngine, DatabaseManager.getConfig());
+        rentalService = new RentalService(rentalDAO, carDAO, bookingCalendar, pricingEngine, settlement, rentalJournal);
+        overdueSweeper = OverdueRentalSweeper.fromConfig(rentalDAO, carDAO, pricingEngine, settlement, rentalJournal,
+                DatabaseManager.getConfig());
+        return bookingCalendar;
+    }
+
+    private static void runServer(BookingCalendar bookingCalendar) {
+        ApiServer server = new ApiServer(authService, carService, rentalService, DatabaseManager.getConfig());
+        try {
+            server.start();
+        } catch (IOException e) {
+            LOG.error("Could not start HTTP API: {}", e.getMessage());
+            Log.flush();
+            DatabaseManager.shutdown();
+            return;
+        }
+        bookingCalendar.startDailyPruning();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Ctrl+C / SIGTERM
+            overdueSweeper.stop();
+            rentalPartitions.stop();
+            fleetChanges.stop();
+            server.stop();
+            rentalJournal.close();
+        }, "http-shutdown"));
     }
 
     private static void runAuthenticationMenu() {
         int choice;
         do {
+            Log.flush(); // Service messages are written asynchronously; show them before the menu
             System.out.println("\n--- Authentication Menu ---");
             System.out.println("1. Login");
             System.out.println("2. Register");
@@ -61,7 +138,7 @@ public class Main {
                     System.out.println("Invalid choice. Please try again.");
             }
             // Continue loop until login is successful or user exits
-        } while (authService.getLoggedInUser() == null && choice != 3);
+        } while (currentSession == null && choice != 3);
     }
 
     private static void handleLogin() {
@@ -70,7 +147,7 @@ public class Main {
         System.out.print("Enter password: ");
         String password = scanner.nextLine(); // In a real app, read securely (e.g., char array)
 
-        authService.login(username, password);
+        currentSession = authService.login(username, password);
     }
 
     private static void handleRegister() {
@@ -93,15 +170,26 @@ public class Main {
     private static void runMainMenu() {
         int choice;
         do {
+            if (!refreshSession()) {
+                runAuthenticationMenu(); // Session expired: log in again
+                if (currentSession == null) {
+                    return;
+                }
+            }
+            Log.flush(); // Service messages are written asynchronously; show them before the menu
             System.out.println("\n--- Main Menu ---");
-            System.out.println("Logged in as: " + authService.getLoggedInUser().getName());
+            System.out.println("Logged in as: " + currentSession.getUser().getName());
             System.out.println("1. View Available Cars");
             System.out.println("2. Rent a Car");
             System.out.println("3. Return a Car");
             System.out.println("4. View My Rentals");
-            System.out.println("5. Add New Car (Admin Only)"); // Example for future admin features
-            System.out.println("6. Logout");
-            System.out.println("7. Exit Application");
+            System.out.println("5. Find Cars Free for Dates");
+            System.out.println("6. Extend a Rental");
+            System.out.println("7. Search Cars by Name or Number");
+            System.out.println("8. Add New Car (Admin Only)"); // Example for future admin features
+            System.out.println("9. Import Cars from CSV (Admin Only)");
+            System.out.println("10. Logout");
+            System.out.println("11. Exit Application");
             System.out.print("Enter your choice: ");
             choice = getIntInput();
 
@@ -119,19 +207,32 @@ public class Main {
                     viewMyRentals();
                     break;
                 case 5:
+                    findCarsForDates();
+                    break;
+                case 6:
+                    extendRental();
+                    break;
+                case 7:
+                    searchCars();
+                    break;
+                case 8:
                     // This would ideally be restricted to admin users
                     addNewCar();
                     break;
-                case 6:
-                    authService.logout();
+                case 9:
+                    importCars();
+                    break;
+                case 10:
+                    authService.logout(currentSession);
+                    currentSession = null;
                     runAuthenticationMenu(); // Go back to auth menu after logout
-                    if (authService.getLoggedInUser() == null) { // If still logged out
+                    if (currentSession == null) { // If still logged out
                         // This ensures that after logging out and then choosing to exit the auth menu,
                         // the main menu loop also terminates.
                         return;
                     }
                     break;
-                case 7:
+                case 11:
                     return; // Exit the main menu loop
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -140,14 +241,54 @@ public class Main {
     }
 
     private static void viewAvailableCars() {
-        List<Car> cars = carService.getAvailableCars();
-        if (!cars.isEmpty()) {
-            System.out.println("\n--- Available Cars ---");
-            System.out.printf("%-5s %-15s %-10s %-20s%n", "ID", "Car Number", "Type", "Name");
-            System.out.println("-------------------------------------------------------");
+        final int PAGE_SIZE = 20;
+        System.out.print("Filter by car type (SUV, Sedan, Mini) or leave blank for any: ");
+        String carType = scanner.nextLine();
+        System.out.print("Filter by name prefix or leave blank: ");
+        String namePrefix = scanner.nextLine();
+        CarFilter filter = new CarFilter(carType, namePrefix, true);
+
+        // Fetch and print one page at a time instead of loading the whole fleet
+        int lastId = 0;
+        while (true) {
+            List<Car> cars = carService.getCarPage(currentSession, filter, lastId, PAGE_SIZE);
+            if (cars.isEmpty()) {
+                return;
+            }
+            if (lastId == 0) {
+                System.out.println("\n--- Available Cars ---");
+                System.out.printf("%-5s %-15s %-10s %-20s%n", "ID", "Car Number", "Type", "Name");
+                System.out.println("-------------------------------------------------------");
+            }
             for (Car car : cars) {
                 System.out.printf("%-5d %-15s %-10s %-20s%n", car.getId(), car.getCarNum(), car.getCarType(), car.getCarName());
             }
+            if (cars.size() < PAGE_SIZE) {
+                return;
+            }
+            lastId = cars.get(cars.size() - 1).getId();
+            System.out.print("-- Press Enter for more, or type q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+        }
+    }
+
+    private static void searchCars() {
+        System.out.print("Search by car name or number (e.g. 'toyota', 'AB-12'): ");
+        String query = scanner.nextLine();
+        System.out.print("Filter by car type (SUV, Sedan, Mini) or leave blank for any: ");
+        String carType = scanner.nextLine();
+        List<Car> cars = carService.searchCars(query, carType, true, 20);
+        if (cars.isEmpty()) {
+            System.out.println("No available cars match '" + query.trim() + "'.");
+            return;
+        }
+        System.out.println("\n--- Matching Available Cars ---");
+        System.out.printf("%-5s %-15s %-10s %-20s%n", "ID", "Car Number", "Type", "Name");
+        System.out.println("-------------------------------------------------------");
+        for (Car car : cars) {
+            System.out.printf("%-5d %-15s %-10s %-20s%n", car.getId(), car.getCarNum(), car.getCarType(), car.getCarName());
         }
     }
 
@@ -160,47 +301,69 @@ public class Main {
         LocalDate endDate = getDateInput("Enter end date (YYYY-MM-DD): ");
         if (endDate == null) return;
 
-        rentalService.rentCar(authService.getLoggedInUser(), carNum, startDate, endDate);
+        rentalService.rentCar(currentSession, carNum, startDate, endDate);
     }
 
     private static void returnCar() {
-        System.out.print("Enter car number of the car you are returning: ");
+        System.out.print("Enter car number of the car you are returning (several separated by commas): ");
         String carNum = scanner.nextLine();
-        rentalService.returnCar(carNum);
+        if (!carNum.contains(",")) {
+            rentalService.returnCar(currentSession, carNum);
+            return;
+        }
+        BulkReturnResult result = rentalService.returnCars(currentSession, List.of(carNum.split(",")));
+        Log.flush();
+        for (BulkReturnResult.Entry entry : result.getEntries()) {
+            System.out.printf("%-15s %-12s %12.2f%n", entry.getCarNum(), entry.getOutcome(), entry.getAmountDue());
+        }
     }
 
     private static void viewMyRentals() {
-        List<Rental> rentals = rentalService.getRentalsForUser(authService.getLoggedInUser());
+        List<RentalDetails> rentals = rentalService.getRentalsForUser(currentSession);
+        Log.flush();
         if (!rentals.isEmpty()) {
             System.out.println("\n--- Your Active Rentals ---");
-            System.out.printf("%-5s %-15s %-15s %-12s %-12s%n", "ID", "Car Number", "Car Name", "Start Date", "End Date");
-            System.out.println("------------------------------------------------------------------");
-            for (Rental rental : rentals) {
-                // To get car details for the rental, you'd typically fetch the car
-                // within the RentalService or here by calling carService.getCarById(rental.getCarId())
-                // For simplicity here, we'll just show the car ID, or you could do a quick lookup.
-                Car rentedCar = carService.getCarByCarNumber(carDAO.findCarById(rental.getCarId()).getCarNum()); // findCarById in CarDAO
-                if(rentedCar != null) {
-                    System.out.printf("%-5d %-15s %-15s %-12s %-12s%n",
-                            rental.getId(),
-                            rentedCar.getCarNum(),
-                            rentedCar.getCarName(),
-                            rental.getStartDate(),
-                            rental.getEndDate());
-                } else {
-                    System.out.printf("%-5d %-15s %-15s %-12s %-12s%n",
-                            rental.getId(),
-                            "N/A (Car ID: " + rental.getCarId() + ")",
-                            "N/A",
-                            rental.getStartDate(),
-                            rental.getEndDate());
-                }
+            System.out.printf("%-5s %-15s %-15s %-12s %-12s %12s%n", "ID", "Car Number", "Car Name", "Start Date", "End Date", "Est. Cost");
+            System.out.println("-------------------------------------------------------------------------------");
+            for (RentalDetails rental : rentals) {
+                System.out.printf("%-5d %-15s %-15s %-12s %-12s %12.2f%n",
+                        rental.getRentalId(),
+                        rental.getCarNum(),
+                        rental.getCarName(),
+                        rental.getStartDate(),
+                        rental.getEndDate(),
+                        rental.getEstimatedCost());
+            }
+        }
+    }
+
+    private static void findCarsForDates() {
+        System.out.print("Enter car type (SUV, Sedan, Mini) or leave blank for any: ");
+        String carType = scanner.nextLine();
+        LocalDate startDate = getDateInput("Enter start date (YYYY-MM-DD): ");
+        LocalDate endDate = getDateInput("Enter end date (YYYY-MM-DD): ");
+
+        List<Car> cars = rentalService.findCarsFreeBetween(carType, startDate, endDate, 50);
+        Log.flush();
+        if (!cars.isEmpty()) {
+            System.out.println("\n--- Cars Free from " + startDate + " to " + endDate + " ---");
+            System.out.printf("%-5s %-15s %-10s %-20s%n", "ID", "Car Number", "Type", "Name");
+            System.out.println("-------------------------------------------------------");
+            for (Car car : cars) {
+                System.out.printf("%-5d %-15s %-10s %-20s%n", car.getId(), car.getCarNum(), car.getCarType(), car.getCarName());
             }
         }
     }
 
+    private static void extendRental() {
+        System.out.print("Enter rental ID to extend: ");
+        int rentalId = getIntInput();
+        LocalDate newEndDate = getDateInput("Enter new end date (YYYY-MM-DD): ");
+        rentalService.extendRental(currentSession, rentalId, newEndDate);
+    }
+
     private static void addNewCar() {
-        // Basic check: in a real app, verify user role (e.g., authService.getLoggedInUser().getRole() == Role.ADMIN)
+        // Basic check: in a real app, verify user role (e.g., currentSession.getUser().getRole() == Role.ADMIN)
         System.out.println("\n--- Add New Car ---");
         System.out.print("Enter car number: ");
         String carNum = scanner.nextLine();
@@ -209,7 +372,24 @@ public class Main {
         System.out.print("Enter car name/model: ");
         String carName = scanner.nextLine();
 
-        carService.addCar(carNum, carType, carName);
+        carService.addCar(currentSession, carNum, carType, carName);
+    }
+
+    private static void importCars() {
+        System.out.println("\n--- Import Cars from CSV ---");
+        System.out.print("Enter path of CSV file (header row, then car_num,car_type,car_name): ");
+        String path = scanner.nextLine();
+        carService.importCarsFromCsv(currentSession, Paths.get(path.trim()));
+    }
+
+    // Re-validates the session token (sliding expiry); false if it has expired in the meantime
+    private static boolean refreshSession() {
+        currentSession = authService.getSession(currentSession.getToken());
+        if (currentSession == null) {
+            System.out.println("\nYour session has expired. Please log in again.");
+            return false;
+        }
+        return true;
     }
 
     // --- Helper methods for input validation ---
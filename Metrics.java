@@ -0,0 +1,125 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide metrics registry: per-operation latency/outcome metrics plus gauges.
+// Everything registered is also published over JMX (domain "carrental") and rendered by scrape()
+// in the Prometheus text format, served by ApiServer at /metrics.
+// Callers look their OperationMetrics up once (static final field) so recording never touches the registry.
+public final class Metrics {
+    private static final Log LOG = Log.get(Metrics.class);
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> GAUGES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    // Returns the metrics for the named operation, creating and registering them on first use
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, n -> {
+            OperationMetrics metrics = new OperationMetrics(n);
+            registerMBean("Operation", n, metrics);
+            return metrics;
+        });
+    }
+
+    // Registers a value that is read on demand; registering the same name again replaces the supplier
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.computeIfAbsent(name, n -> {
+            Gauge gauge = new Gauge(n);
+            registerMBean("Gauge", n, gauge);
+            return gauge;
+        }).value = value;
+    }
+
+    public static Map<String, OperationMetrics> getOperations() {
+        return OPERATIONS;
+    }
+
+    // Prometheus text exposition of all operations and gauges
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(OPERATIONS.size() * 600 + 256);
+        out.append("# TYPE carrental_operation_seconds summary\n");
+        for (OperationMetrics op : OPERATIONS.values()) {
+            LatencyHistogram latency = op.getLatency();
+            String label = "op=\"" + escape(op.getName()) + "\"";
+            appendQuantile(out, label, "0.5", latency.getPercentileMillis(0.50));
+            appendQuantile(out, label, "0.9", latency.getPercentileMillis(0.90));
+            appendQuantile(out, label, "0.99", latency.getPercentileMillis(0.99));
+            appendQuantile(out, label, "0.999", latency.getPercentileMillis(0.999));
+            out.append("carrental_operation_seconds_sum{").append(label).append("} ")
+                    .append(latency.getTotalNanos() / 1e9).append('\n');
+            out.append("carrental_operation_seconds_count{").append(label).append("} ")
+                    .append(latency.getCount()).append('\n');
+        }
+        out.append("# TYPE carrental_operation_max_seconds gauge\n");
+        for (OperationMetrics op : OPERATIONS.values()) {
+            out.append("carrental_operation_max_seconds{op=\"").append(escape(op.getName())).append("\"} ")
+                    .append(op.getMaxMillis() / 1000.0).append('\n');
+        }
+        out.append("# TYPE carrental_operation_total counter\n");
+        for (OperationMetrics op : OPERATIONS.values()) {
+            String label = "op=\"" + escape(op.getName()) + "\"";
+            appendOutcome(out, label, "success", op.getSuccessCount());
+            appendOutcome(out, label, "failure", op.getFailureCount());
+            appendOutcome(out, label, "constraint_violation", op.getConstraintViolationCount());
+        }
+        for (Gauge gauge : GAUGES.values()) {
+            String metric = "carrental_" + gauge.getName().replaceAll("[^A-Za-z0-9_]", "_");
+            out.append("# TYPE ").append(metric).append(" gauge\n");
+            out.append(metric).append(' ').append(gauge.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendQuantile(StringBuilder out, String label, String quantile, double millis) {
+        out.append("carrental_operation_seconds{").append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(millis / 1000.0).append('\n');
+    }
+
+    private static void appendOutcome(StringBuilder out, String label, String outcome, long count) {
+        out.append("carrental_operation_total{").append(label).append(",outcome=\"").append(outcome).append("\"} ")
+                .append(count).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    static void registerMBean(String type, String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("carrental:type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            // Metrics keep working without JMX (e.g. restricted environments); only the JMX view is lost
+            LOG.error("Could not register JMX metric {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static final class Gauge implements GaugeMXBean {
+        private final String name;
+        private volatile LongSupplier value = () -> 0;
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        @Override public String getName() { return name; }
+
+        @Override
+        public long getValue() {
+            try {
+                return value.getAsLong();
+            } catch (RuntimeException e) {
+                return -1; // a broken gauge must not break the scrape
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and outcome counters of one operation (a DAO method or a service call).
+// Usage: long start = System.nanoTime(); ... then exactly one of success/failure/constraintViolation.
+// Recording is lock-free and allocation-free, so it stays on under load.
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder constraintViolations = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public void success(long startNanos) {
+        latency.recordSince(startNanos);
+        successes.increment();
+    }
+
+    // Business-level failure or an error that is not a constraint violation
+    public void failure(long startNanos) {
+        latency.recordSince(startNanos);
+        failures.increment();
+    }
+
+    // Counts SQLState 23xxx (unique key, foreign key, check ...) separately from other database errors
+    public void failure(long startNanos, SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && state.startsWith("23")) {
+            constraintViolation(startNanos);
+        } else {
+            failure(startNanos);
+        }
+    }
+
+    public void constraintViolation(long startNanos) {
+        latency.recordSince(startNanos);
+        constraintViolations.increment();
+    }
+
+    public void record(long startNanos, boolean succeeded) {
+        if (succeeded) {
+            success(startNanos);
+        } else {
+            failure(startNanos);
+        }
+    }
+
+    public LatencyHistogram getLatency() { return latency; }
+
+    // --- OperationMetricsMXBean ---
+    @Override public String getName() { return name; }
+    @Override public long getCount() { return latency.getCount(); }
+    @Override public long getSuccessCount() { return successes.sum(); }
+    @Override public long getFailureCount() { return failures.sum(); }
+    @Override public long getConstraintViolationCount() { return constraintViolations.sum(); }
+    @Override public double getMeanMillis() { return latency.getMeanMillis(); }
+    @Override public double getP50Millis() { return latency.getPercentileMillis(0.50); }
+    @Override public double getP90Millis() { return latency.getPercentileMillis(0.90); }
+    @Override public double getP99Millis() { return latency.getPercentileMillis(0.99); }
+    @Override public double getP999Millis() { return latency.getPercentileMillis(0.999); }
+    @Override public double getMaxMillis() { return latency.getMaxMillis(); }
+
+    @Override
+    public String toString() {
+        return name + " ok=" + getSuccessCount() + " failed=" + getFailureCount()
+                + " constraint=" + getConstraintViolationCount() + " " + latency;
+    }
+}
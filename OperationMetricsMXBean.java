@@ -0,0 +1,14 @@
+// JMX view of one OperationMetrics, registered as carrental:type=Operation,name=<operation>
+public interface OperationMetricsMXBean {
+    String getName();
+    long getCount();
+    long getSuccessCount();
+    long getFailureCount();
+    long getConstraintViolationCount();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP90Millis();
+    double getP99Millis();
+    double getP999Millis();
+    double getMaxMillis();
+}
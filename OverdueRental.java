@@ -0,0 +1,40 @@
+import java.time.LocalDate;
+
+// A rental whose end date has passed, as seen by the overdue sweeper.
+// stillOut is false when the car has been returned (or handed to a later rental) in the meantime;
+// neverPickedUp marks a booking that is still active although its car never went out on it.
+public class OverdueRental {
+    private int id;
+    private int userId;
+    private int carId;
+    private CarType carType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private double lateFee; // Fee accrued so far (0 until the sweeper has priced it)
+    private boolean stillOut;
+    private boolean neverPickedUp;
+
+    public OverdueRental(int id, int userId, int carId, CarType carType, LocalDate startDate, LocalDate endDate,
+                         double lateFee, boolean stillOut, boolean neverPickedUp) {
+        this.id = id;
+        this.userId = userId;
+        this.carId = carId;
+        this.carType = carType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.lateFee = lateFee;
+        this.stillOut = stillOut;
+        this.neverPickedUp = neverPickedUp;
+    }
+
+    // Getters
+    public int getId() { return id; }
+    public int getUserId() { return userId; }
+    public int getCarId() { return carId; }
+    public CarType getCarType() { return carType; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public double getLateFee() { return lateFee; }
+    public boolean isStillOut() { return stillOut; }
+    public boolean isNeverPickedUp() { return neverPickedUp; }
+}
@@ -0,0 +1,209 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Background job that notices rentals past their end date whose car has not come back.
+// Every overdue.intervalSeconds it:
+// 1. walks the rentals that ended since the last run in (end_date, id) order from a high-water mark kept in
+//    sweeper_state, marks the ones still out 'overdue' with a late fee and queues a rental_notifications row;
+//    bookings that ended without their car ever going out are cancelled
+// 2. brings the late fees of rentals that are already overdue up to today
+// 3. hands cars over to the bookings whose first day has come (the car goes from 'available' to 'rented')
+// Work is done in batches of overdue.batchSize, each its own short transaction with one multi-row UPDATE, and a
+// tick stops starting new batches after overdue.timeBudgetMillis; whatever is left is picked up by the next tick.
+// Late fees are the normal price of the late days (PricingEngine) times overdue.lateFeeMultiplier (RentalSettlement,
+// which also settles the final fee when the car comes back).
+public class OverdueRentalSweeper {
+    private static final Log LOG = Log.get(OverdueRentalSweeper.class);
+    private static final OperationMetrics TICK = Metrics.operation("sweeper.overdue.tick");
+    static final String NAME = "overdue-rentals";
+
+    private final RentalDAO rentalDAO;
+    private final CarDAO carDAO; // cache/snapshot write-through for cars handed over
+    private final PricingEngine pricingEngine;
+    private final RentalSettlement settlement;
+    private final RentalJournal journal;
+    private final long intervalSeconds;
+    private final int batchSize;
+    private final long timeBudgetNanos;
+    private ScheduledExecutorService scheduler;
+    private SweepPosition position; // null until loaded; only touched by the sweeper thread (or a direct runOnce)
+
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder marked = new LongAdder();
+    private final LongAdder feesUpdated = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder handedOver = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    public OverdueRentalSweeper(RentalDAO rentalDAO, CarDAO carDAO, PricingEngine pricingEngine, RentalSettlement settlement,
+                                RentalJournal journal, long intervalSeconds, int batchSize, long timeBudgetMillis) {
+        this.rentalDAO = rentalDAO;
+        this.carDAO = carDAO;
+        this.pricingEngine = pricingEngine;
+        this.settlement = settlement;
+        this.journal = journal;
+        this.intervalSeconds = intervalSeconds;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeBudgetNanos = Math.max(1, timeBudgetMillis) * 1_000_000L;
+
+        Metrics.gauge("sweeper.overdue.scanned", scanned::sum);
+        Metrics.gauge("sweeper.overdue.marked", marked::sum);
+        Metrics.gauge("sweeper.overdue.feesUpdated", feesUpdated::sum);
+        Metrics.gauge("sweeper.overdue.cancelled", cancelled::sum);
+        Metrics.gauge("sweeper.overdue.handedOver", handedOver::sum);
+        Metrics.gauge("sweeper.overdue.budgetExhausted", budgetExhausted::sum);
+    }
+
+    public static OverdueRentalSweeper fromConfig(RentalDAO rentalDAO, CarDAO carDAO, PricingEngine pricingEngine,
+                                                  RentalSettlement settlement, RentalJournal journal,
+                                                  DatabaseConfig config) {
+        return new OverdueRentalSweeper(rentalDAO, carDAO, pricingEngine, settlement, journal,
+                config.getLong("overdue.intervalSeconds", 60),
+                config.getInt("overdue.batchSize", 500),
+                config.getLong("overdue.timeBudgetMillis", 200));
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || intervalSeconds <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "overdue-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (RuntimeException e) {
+                LOG.error("Overdue sweep failed: {}", e.getMessage());
+            }
+        }, 5, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // One tick; returns the number of rentals newly marked overdue
+    public synchronized int runOnce() {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetNanos;
+        LocalDate today = LocalDate.now();
+        int newlyOverdue = markNewlyOverdue(today, deadline);
+        boolean finished = newlyOverdue >= 0 && updateAccruedFees(today, deadline);
+        // After phase 1, so a booking that was never picked up has been cancelled before the next one takes the car
+        boolean handed = newlyOverdue >= 0 && handOverDueCars(today);
+        if (!finished && System.nanoTime() >= deadline) {
+            budgetExhausted.increment();
+        }
+        TICK.record(start, newlyOverdue >= 0 && handed);
+        if (newlyOverdue > 0) {
+            LOG.info("{} rental(s) marked overdue.", newlyOverdue);
+        }
+        return Math.max(0, newlyOverdue);
+    }
+
+    // Phase 1: rentals that ended since the high-water mark; -1 if the database could not be read
+    private int markNewlyOverdue(LocalDate today, long deadline) {
+        if (position == null) {
+            position = rentalDAO.loadSweepPosition(NAME);
+            if (position == null) return -1;
+        }
+        int total = 0;
+        while (System.nanoTime() < deadline) {
+            List<OverdueRental> batch = rentalDAO.findRentalsEndedAfter(position, today, batchSize);
+            if (batch == null) return -1;
+            if (batch.isEmpty()) break;
+            scanned.add(batch.size());
+
+            List<OverdueRental> stillOut = new ArrayList<>();
+            List<OverdueRental> noShows = new ArrayList<>();
+            for (OverdueRental rental : batch) {
+                if (rental.isStillOut()) {
+                    stillOut.add(rental);
+                } else if (rental.isNeverPickedUp()) {
+                    noShows.add(rental);
+                }
+            }
+            OverdueRental last = batch.get(batch.size() - 1);
+            SweepPosition next = new SweepPosition(last.getEndDate(), last.getId());
+            List<Integer> ids = rentalDAO.markOverdue(stillOut, lateFees(stillOut, today), today, noShows, NAME, next);
+            if (ids == null) return -1; // position stays, the batch is retried next tick
+            position = next;
+            cancelled.add(noShows.size());
+            total += ids.size();
+            marked.add(ids.size());
+            journalMarked(stillOut, ids);
+            if (batch.size() < batchSize) break;
+        }
+        return total;
+    }
+
+    // Phase 2: late fees of rentals that are already overdue, brought up to today; false if not done
+    private boolean updateAccruedFees(LocalDate today, long deadline) {
+        while (System.nanoTime() < deadline) {
+            List<OverdueRental> batch = rentalDAO.findOverdueFeesDue(today, batchSize);
+            if (batch == null) return false;
+            if (batch.isEmpty()) return true;
+            int updated = rentalDAO.updateLateFees(batch, lateFees(batch, today), today);
+            if (updated < 0) return false;
+            feesUpdated.add(updated);
+            if (batch.size() < batchSize) return true;
+        }
+        return false;
+    }
+
+    // Phase 3: cars whose booking starts today (or started while the car was away) go out; false on a database error
+    private boolean handOverDueCars(LocalDate today) {
+        List<Car> cars = rentalDAO.startDueRentals(today);
+        if (cars == null) return false;
+        for (Car car : cars) {
+            carDAO.refreshCachedCar(car);
+            journal.append(RentalEvent.Type.STATUS_CHANGED, car.getId(), 0, 0, null, null, car.getStatus());
+        }
+        handedOver.add(cars.size());
+        if (!cars.isEmpty()) {
+            LOG.info("{} booked car(s) handed over.", cars.size());
+        }
+        return true;
+    }
+
+    // Price of the days from the day after the end date through today; a rental that is no longer out keeps its fee
+    private double[] lateFees(List<OverdueRental> rentals, LocalDate today) {
+        List<QuoteRequest> requests = new ArrayList<>(rentals.size());
+        for (OverdueRental rental : rentals) {
+            requests.add(new QuoteRequest(rental.getCarId(), rental.getCarType(), rental.getEndDate().plusDays(1), today));
+        }
+        double[] prices = pricingEngine.quoteBatch(requests);
+        double[] fees = new double[prices.length];
+        for (int i = 0; i < fees.length; i++) {
+            OverdueRental rental = rentals.get(i);
+            fees[i] = rental.isStillOut() ? settlement.lateFee(prices[i]) : rental.getLateFee();
+        }
+        return fees;
+    }
+
+    private void journalMarked(List<OverdueRental> rentals, List<Integer> markedIds) {
+        if (markedIds.isEmpty()) return;
+        Set<Integer> ids = new HashSet<>(markedIds);
+        for (OverdueRental rental : rentals) {
+            if (ids.contains(rental.getId())) {
+                journal.append(RentalEvent.Type.OVERDUE, rental.getCarId(), rental.getUserId(), rental.getId(),
+                        rental.getStartDate(), rental.getEndDate(), null);
+            }
+        }
+    }
+
+    public synchronized SweepPosition getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,194 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// PBKDF2-HMAC-SHA256 password hashing on a dedicated, bounded thread pool.
+// Stored format: pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>. Anything else is a legacy plaintext password,
+// still accepted once so the user can log in and get it rehashed.
+// - the iteration count is tuned at startup so one verification takes about auth.hash.targetMillis
+// - hashing runs on at most auth.hash.threads threads (default half the cores) so a login storm cannot take all the CPU
+//   from rentals; when auth.hash.queueCapacity jobs are already waiting, new ones are rejected instead of piling up
+public class PasswordHasher {
+    private static final Log LOG = Log.get(PasswordHasher.class);
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final OperationMetrics HASH = Metrics.operation("auth.hash.compute");
+    private static final OperationMetrics QUEUE_WAIT = Metrics.operation("auth.hash.queueWait");
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final String dummyHash; // verified against for unknown users, so response time does not reveal who exists
+
+    public PasswordHasher(int iterations, int threads, int queueCapacity) {
+        this.iterations = iterations;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = hash("dummy-password");
+
+        Metrics.gauge("auth.hash.queueDepth", () -> executor.getQueue().size());
+        Metrics.gauge("auth.hash.active", executor::getActiveCount);
+        Metrics.gauge("auth.hash.rejected", rejected::sum);
+        Metrics.gauge("auth.hash.iterations", () -> this.iterations);
+    }
+
+    public static PasswordHasher fromConfig(DatabaseConfig config) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(1, config.getInt("auth.hash.threads", Math.max(1, cores / 2)));
+        int queueCapacity = Math.max(1, config.getInt("auth.hash.queueCapacity", threads * 64));
+        int minIterations = Math.max(1_000, config.getInt("auth.hash.minIterations", 100_000));
+        int iterations = config.getInt("auth.hash.iterations", 0); // 0 = tune to the target time
+        if (iterations <= 0) {
+            iterations = calibrate(config.getLong("auth.hash.targetMillis", 100), minIterations);
+            LOG.info("Password hashing tuned to {} PBKDF2 iterations.", iterations);
+        }
+        return new PasswordHasher(Math.max(minIterations, iterations), threads, queueCapacity);
+    }
+
+    // Times a few hashes on this machine and scales the iteration count to the target time per hash
+    static int calibrate(long targetMillis, int minIterations) {
+        int probe = 20_000;
+        byte[] salt = new byte[SALT_BYTES];
+        pbkdf2("calibration".toCharArray(), salt, probe); // warm up the JIT
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration".toCharArray(), salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double perIteration = (double) best / probe;
+        long tuned = (long) (targetMillis * 1_000_000L / perIteration);
+        return (int) Math.min(10_000_000, Math.max(minIterations, tuned));
+    }
+
+    // --- Synchronous primitives (run on the calling thread) ---
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password.toCharArray(), salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    // stored may be null (unknown user): a dummy hash is checked so the work done is the same
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            verify(password, dummyHash);
+            return false;
+        }
+        if (!isHashed(stored)) {
+            // Legacy plaintext row; constant-time compare, then the caller rehashes it
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password.toCharArray(), salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false; // corrupt hash
+        }
+    }
+
+    // True for plaintext and for hashes made with fewer iterations than the current setting
+    public boolean needsRehash(String stored) {
+        if (stored == null || !isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    // --- On the hashing pool ---
+
+    // Completes exceptionally with RejectedExecutionException when the queue is full
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> hash(password));
+    }
+
+    public CompletableFuture<Boolean> verifyAsync(String password, String stored) {
+        return submit(() -> verify(password, stored));
+    }
+
+    private <T> CompletableFuture<T> submit(HashJob<T> job) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return; // cancelled while queued, e.g. registration of a taken username
+                }
+                QUEUE_WAIT.success(queuedAt);
+                long start = System.nanoTime();
+                try {
+                    result.complete(job.run());
+                    HASH.success(start);
+                } catch (RuntimeException e) {
+                    HASH.failure(start);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            QUEUE_WAIT.failure(queuedAt);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private interface HashJob<T> {
+        T run();
+    }
+
+    public int getIterations() { return iterations; }
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public long getRejectedCount() { return rejected.sum(); }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
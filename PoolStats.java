@@ -0,0 +1,36 @@
+// Point-in-time view of the connection pool, used to size it under load
+public class PoolStats {
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int waitingThreads;
+    private final int maxPoolSize;
+    private final LatencyHistogram acquireTime;
+
+    public PoolStats(int totalConnections, int activeConnections, int idleConnections, int waitingThreads,
+                     int maxPoolSize, LatencyHistogram acquireTime) {
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.waitingThreads = waitingThreads;
+        this.maxPoolSize = maxPoolSize;
+        this.acquireTime = acquireTime;
+    }
+
+    // Getters
+    public int getTotalConnections() { return totalConnections; }
+    public int getActiveConnections() { return activeConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public int getMaxPoolSize() { return maxPoolSize; }
+    public LatencyHistogram getAcquireTime() { return acquireTime; }
+
+    @Override
+    public String toString() {
+        return "total=" + totalConnections + "/" + maxPoolSize
+                + " active=" + activeConnections
+                + " idle=" + idleConnections
+                + " waiting=" + waitingThreads
+                + " acquire[" + acquireTime + "]";
+    }
+}
@@ -0,0 +1,152 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+
+// Immutable, precompiled form of a RateCard.
+// For every car type the per-day price factor (weekend x seasonal multiplier) over a fixed horizon is turned
+// into a prefix-sum array, so the price of any date range inside the horizon is two array reads and a multiply.
+public class PriceTable {
+    private static final int DAYS_BEFORE_TODAY = 400; // covers settling rentals that started a while ago
+    private static final int DAYS_AFTER_TODAY = 800;  // covers bookings made up to ~2 years ahead
+
+    private final RateCard card;
+    private final long horizonStart; // epoch day of index 0
+    private final int horizonDays;
+    private final int[] rowByTypeCode; // CarType code -> rate row, -1 for types without a rate
+    private final String[] typeKeys;   // rate card key of every row, for the weekend rule outside the horizon
+    private final double[] typeRates;
+    private final double[][] factorPrefix; // [type][day + 1]; the last row is for unknown types (no weekend rule)
+    private final int[] discountMinDays;
+    private final double[] discountPercents;
+    private final int[] overrideCarIds;
+    private final double[] overrideRates;
+
+    private PriceTable(RateCard card, LocalDate today) {
+        this.card = card;
+        this.horizonStart = today.toEpochDay() - DAYS_BEFORE_TODAY;
+        this.horizonDays = DAYS_BEFORE_TODAY + DAYS_AFTER_TODAY;
+
+        double[] seasonal = new double[horizonDays];
+        for (int i = 0; i < horizonDays; i++) {
+            seasonal[i] = seasonalMultiplier(horizonStart + i);
+        }
+
+        Map<String, Double> rates = card.getTypeRates();
+        typeRates = new double[rates.size()];
+        typeKeys = new String[rates.size()];
+        factorPrefix = new double[rates.size() + 1][];
+        CarType[] rowTypes = new CarType[rates.size()];
+        int t = 0;
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            rowTypes[t] = CarType.of(entry.getKey());
+            typeKeys[t] = entry.getKey();
+            typeRates[t] = entry.getValue();
+            factorPrefix[t] = prefixSums(seasonal, card.getWeekendMultiplier(entry.getKey()));
+            t++;
+        }
+        factorPrefix[t] = prefixSums(seasonal, 1.0);
+
+        // Every priced type is registered by now, so any type code past the end of this array has no rate
+        rowByTypeCode = new int[CarType.count()];
+        Arrays.fill(rowByTypeCode, -1);
+        for (int row = 0; row < rowTypes.length; row++) {
+            if (rowTypes[row] != null) {
+                rowByTypeCode[rowTypes[row].getCode()] = row;
+            }
+        }
+
+        int[] minDays = card.getDiscountPercentByMinDays().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        discountMinDays = minDays;
+        discountPercents = new double[minDays.length];
+        for (int i = 0; i < minDays.length; i++) {
+            discountPercents[i] = card.getDiscountPercentByMinDays().get(minDays[i]);
+        }
+
+        overrideCarIds = card.getCarRateOverrides().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        overrideRates = new double[overrideCarIds.length];
+        for (int i = 0; i < overrideCarIds.length; i++) {
+            overrideRates[i] = card.getCarRateOverrides().get(overrideCarIds[i]);
+        }
+    }
+
+    public static PriceTable compile(RateCard card, LocalDate today) {
+        return new PriceTable(card, today);
+    }
+
+    private double[] prefixSums(double[] seasonal, double weekendMultiplier) {
+        double[] prefix = new double[horizonDays + 1];
+        for (int i = 0; i < horizonDays; i++) {
+            prefix[i + 1] = prefix[i] + seasonal[i] * (isWeekend(horizonStart + i) ? weekendMultiplier : 1.0);
+        }
+        return prefix;
+    }
+
+    private double seasonalMultiplier(long epochDay) {
+        double multiplier = 1.0;
+        for (RateCard.SeasonalRate season : card.getSeasonalRates()) {
+            if (season.getStartDate().toEpochDay() <= epochDay && epochDay <= season.getEndDate().toEpochDay()) {
+                multiplier *= season.getMultiplier();
+            }
+        }
+        return multiplier;
+    }
+
+    private static boolean isWeekend(long epochDay) {
+        DayOfWeek day = LocalDate.ofEpochDay(epochDay).getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    // Returns a negative value for car types with no rate and no per-car override
+    public double quote(int carId, CarType carType, LocalDate startDate, LocalDate endDate) {
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+        if (to < from) return 0.0;
+
+        int type = typeRow(carType);
+        int row = type < 0 ? typeRates.length : type;
+        double rate = overrideRate(carId);
+        if (rate < 0) {
+            if (type < 0) return -1.0;
+            rate = typeRates[type];
+        }
+
+        double factorSum;
+        long lo = from - horizonStart;
+        long hi = to - horizonStart + 1;
+        if (lo >= 0 && hi <= horizonDays) {
+            factorSum = factorPrefix[row][(int) hi] - factorPrefix[row][(int) lo];
+        } else {
+            // Outside the precompiled horizon: fall back to evaluating day by day
+            double weekend = type < 0 ? 1.0 : card.getWeekendMultiplier(typeKeys[type]);
+            factorSum = 0.0;
+            for (long day = from; day <= to; day++) {
+                factorSum += seasonalMultiplier(day) * (isWeekend(day) ? weekend : 1.0);
+            }
+        }
+        long days = to - from + 1;
+        return rate * factorSum * (1.0 - discountPercent(days) / 100.0);
+    }
+
+    // Flat type rate, ignoring calendar rules; -1 for unknown types
+    public double baseDailyRate(CarType carType) {
+        int type = typeRow(carType);
+        return type < 0 ? -1.0 : typeRates[type];
+    }
+
+    private int typeRow(CarType carType) {
+        if (carType == null || carType.getCode() >= rowByTypeCode.length) return -1;
+        return rowByTypeCode[carType.getCode()];
+    }
+
+    public double discountPercent(long days) {
+        int i = Arrays.binarySearch(discountMinDays, (int) Math.min(days, Integer.MAX_VALUE));
+        if (i < 0) i = -i - 2; // largest threshold below days
+        return i < 0 ? 0.0 : discountPercents[i];
+    }
+
+    private double overrideRate(int carId) {
+        int i = Arrays.binarySearch(overrideCarIds, carId);
+        return i < 0 ? -1.0 : overrideRates[i];
+    }
+}
@@ -0,0 +1,53 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class PricingDAO {
+    private static final Log LOG = Log.get(PricingDAO.class);
+    private static final OperationMetrics LOAD_RATE_CARD = Metrics.operation("dao.pricing.loadRateCard");
+
+    // Loads all pricing rules. Tables that do not exist yet are skipped so the built-in defaults apply.
+    // Returns null on any other database error: a partly loaded card would silently price at the defaults.
+    public RateCard loadRateCard() {
+        RateCard card = new RateCard();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            load(conn, "SELECT car_type, daily_rate, weekend_multiplier FROM car_type_rates", rs ->
+                    card.addTypeRate(rs.getString("car_type"), rs.getDouble("daily_rate"), rs.getDouble("weekend_multiplier")));
+            load(conn, "SELECT start_date, end_date, multiplier FROM seasonal_rates", rs ->
+                    card.addSeasonalRate(rs.getDate("start_date").toLocalDate(), rs.getDate("end_date").toLocalDate(),
+                            rs.getDouble("multiplier")));
+            load(conn, "SELECT min_days, discount_percent FROM long_rental_discounts", rs ->
+                    card.addLongRentalDiscount(rs.getInt("min_days"), rs.getDouble("discount_percent")));
+            // daily_rate on a car overrides its type's rate
+            load(conn, "SELECT id, daily_rate FROM cars WHERE daily_rate > 0", rs ->
+                    card.addCarRateOverride(rs.getInt("id"), rs.getDouble("daily_rate")));
+            LOAD_RATE_CARD.success(start);
+        } catch (SQLException e) {
+            LOAD_RATE_CARD.failure(start, e);
+            LOG.error("Database error loading pricing rules: {}", e.getMessage());
+            return null;
+        }
+        return card;
+    }
+
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private void load(Connection conn, String sql, RowHandler handler) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                handler.handle(rs);
+            }
+        } catch (SQLException e) {
+            // Undefined table/column (42P01 / 42703): that part of the pricing schema is optional
+            if (!"42P01".equals(e.getSQLState()) && !"42703".equals(e.getSQLState())) {
+                throw e;
+            }
+            LOG.warn("Pricing rules skipped ({})", e.getMessage().trim());
+        }
+    }
+}
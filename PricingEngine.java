@@ -0,0 +1,91 @@
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Prices rentals from the rate tables in the database.
+// Rules are compiled into an immutable PriceTable; reload() swaps in a new one, so rates can change
+// without a restart and a quote never sees a half-loaded rule set.
+public class PricingEngine {
+    private static final Log LOG = Log.get(PricingEngine.class);
+
+    private final PricingDAO pricingDAO;
+    private volatile PriceTable table;
+    private ScheduledExecutorService reloader;
+
+    public PricingEngine(PricingDAO pricingDAO) {
+        this.pricingDAO = pricingDAO;
+        this.table = PriceTable.compile(new RateCard(), LocalDate.now()); // defaults until the first reload
+    }
+
+    // false if the rules could not be read; the current table (or the defaults, before the first load) stays
+    public boolean reload() {
+        RateCard card = pricingDAO.loadRateCard();
+        if (card == null) {
+            LOG.warn("Reloading pricing rules failed, keeping the current rates.");
+            return false;
+        }
+        table = PriceTable.compile(card, LocalDate.now());
+        return true;
+    }
+
+    // Re-reads the rate tables periodically (this also moves the precompiled date horizon along)
+    public synchronized void startAutoReload(long intervalSeconds) {
+        if (reloader != null || intervalSeconds <= 0) return;
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pricing-reloader");
+            t.setDaemon(true);
+            return t;
+        });
+        reloader.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                LOG.warn("Reloading pricing rules failed, keeping the current rates: {}", e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+            reloader = null;
+        }
+    }
+
+    public double quote(int carId, CarType carType, LocalDate startDate, LocalDate endDate) {
+        double price = table.quote(carId, carType, startDate, endDate);
+        if (price < 0) {
+            LOG.warn("Unknown car type: {}. Defaulting to ₹0 rate.", carType);
+            return 0.0;
+        }
+        return price;
+    }
+
+    // Prices many car x date-range combinations against one consistent rate snapshot
+    public double[] quoteBatch(List<QuoteRequest> requests) {
+        PriceTable snapshot = table;
+        double[] prices = new double[requests.size()];
+        for (int i = 0; i < prices.length; i++) {
+            QuoteRequest request = requests.get(i);
+            prices[i] = Math.max(0.0, snapshot.quote(request.getCarId(), request.getCarType(),
+                    request.getStartDate(), request.getEndDate()));
+        }
+        return prices;
+    }
+
+    // Flat daily rate of a car type; used where no dates are known
+    public double getBaseDailyRate(CarType carType) {
+        double rate = table.baseDailyRate(carType);
+        if (rate < 0) {
+            LOG.warn("Unknown car type: {}. Defaulting to ₹0 rate.", carType);
+            return 0.0;
+        }
+        return rate;
+    }
+
+    public double getDiscountPercent(long days) {
+        return table.discountPercent(days);
+    }
+}
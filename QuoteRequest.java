@@ -0,0 +1,22 @@
+import java.time.LocalDate;
+
+// One car x date-range combination to price in a batch quote
+public class QuoteRequest {
+    private int carId;
+    private CarType carType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public QuoteRequest(int carId, CarType carType, LocalDate startDate, LocalDate endDate) {
+        this.carId = carId;
+        this.carType = carType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // Getters
+    public int getCarId() { return carId; }
+    public CarType getCarType() { return carType; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+}
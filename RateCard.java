@@ -0,0 +1,59 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Raw pricing rules as stored in the database, before PricingEngine compiles them into a PriceTable
+public class RateCard {
+    // Used when the car_type_rates table is missing or empty (the rates that used to be hard-coded)
+    public static final Map<String, Double> DEFAULT_TYPE_RATES = Map.of("suv", 5000.0, "sedan", 4000.0, "mini", 3000.0);
+
+    private final Map<String, Double> typeRates = new HashMap<>();
+    private final Map<String, Double> weekendMultipliers = new HashMap<>();
+    private final List<SeasonalRate> seasonalRates = new ArrayList<>();
+    private final Map<Integer, Double> discountPercentByMinDays = new HashMap<>();
+    private final Map<Integer, Double> carRateOverrides = new HashMap<>();
+
+    public void addTypeRate(String carType, double dailyRate, double weekendMultiplier) {
+        String key = carType.toLowerCase(Locale.ROOT);
+        typeRates.put(key, dailyRate);
+        weekendMultipliers.put(key, weekendMultiplier);
+    }
+
+    public void addSeasonalRate(LocalDate startDate, LocalDate endDate, double multiplier) {
+        seasonalRates.add(new SeasonalRate(startDate, endDate, multiplier));
+    }
+
+    public void addLongRentalDiscount(int minDays, double discountPercent) {
+        discountPercentByMinDays.put(minDays, discountPercent);
+    }
+
+    public void addCarRateOverride(int carId, double dailyRate) {
+        carRateOverrides.put(carId, dailyRate);
+    }
+
+    // Getters
+    public Map<String, Double> getTypeRates() { return typeRates.isEmpty() ? DEFAULT_TYPE_RATES : typeRates; }
+    public double getWeekendMultiplier(String typeKey) { return weekendMultipliers.getOrDefault(typeKey, 1.0); }
+    public List<SeasonalRate> getSeasonalRates() { return seasonalRates; }
+    public Map<Integer, Double> getDiscountPercentByMinDays() { return discountPercentByMinDays; }
+    public Map<Integer, Double> getCarRateOverrides() { return carRateOverrides; }
+
+    public static class SeasonalRate {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final double multiplier;
+
+        public SeasonalRate(LocalDate startDate, LocalDate endDate, double multiplier) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.multiplier = multiplier;
+        }
+
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public double getMultiplier() { return multiplier; }
+    }
+}
@@ -32,6 +32,7 @@ public class Rental {
     public LocalDate getEndDate() { return endDate; }
 
     // Setters (if needed, e.g., to extend rental)
+    public void setId(int id) { this.id = id; } // Set once the database has generated the id
     public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
     public void setUserId(int userId) { this.userId = userId; }
     public void setCarId(int carId) { this.carId = carId; }
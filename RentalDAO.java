@@ -5,14 +5,43 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate; // For modern date handling
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class RentalDAO {
+    private static final Log LOG = Log.get(RentalDAO.class);
+    private static final OperationMetrics CREATE_RENTAL = Metrics.operation("dao.rental.createRental");
+    private static final OperationMetrics BOOK_CAR = Metrics.operation("dao.rental.bookCar");
+    private static final OperationMetrics FIND_BY_ID = Metrics.operation("dao.rental.findRentalById");
+    private static final OperationMetrics FIND_BY_USER = Metrics.operation("dao.rental.getRentalsByUserId");
+    private static final OperationMetrics LOAD_UPCOMING = Metrics.operation("dao.rental.forEachUpcomingRental");
+    private static final OperationMetrics DETAILS_BY_USER = Metrics.operation("dao.rental.getRentalDetailsByUserId");
+    private static final OperationMetrics UPDATE_END_DATE = Metrics.operation("dao.rental.updateRentalEndDate");
+    private static final OperationMetrics LOAD_SWEEP_POSITION = Metrics.operation("dao.rental.loadSweepPosition");
+    private static final OperationMetrics FIND_ENDED = Metrics.operation("dao.rental.findRentalsEndedAfter");
+    private static final OperationMetrics MARK_OVERDUE = Metrics.operation("dao.rental.markOverdue");
+    private static final OperationMetrics START_DUE = Metrics.operation("dao.rental.startDueRentals");
+    private static final OperationMetrics FIND_FEES_DUE = Metrics.operation("dao.rental.findOverdueFeesDue");
+    private static final OperationMetrics UPDATE_LATE_FEES = Metrics.operation("dao.rental.updateLateFees");
+    private static final OperationMetrics FIND_OLDEST_LIVE = Metrics.operation("dao.rental.findOldestLiveStartDate");
+    private static final OperationMetrics RETURN_CARS = Metrics.operation("dao.rental.returnCars");
+    private static final LocalDate NO_BOUND = LocalDate.of(1970, 1, 1);
+
+    // Hot/cold routing (see RentalPartitionManager). Every rental that can still show up in an "active" query
+    // (active, overdue, or not ended yet) starts on or after hotFrom, so those queries add start_date >= hotFrom
+    // and PostgreSQL skips the older monthly partitions of rentals without looking at them.
+    private volatile LocalDate hotFrom = NO_BOUND;
+    // True once rentals_archive holds detached partitions; findRentalById then also looks there
+    private volatile boolean archiveTier;
 
     // Method to create a new rental record in the database
     public boolean createRental(Rental rental) {
         // rental_id is typically auto-generated by the database (SERIAL)
         String sql = "INSERT INTO rentals (user_id, car_id, start_date, end_date) VALUES (?, ?, ?, ?)";
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -22,47 +51,260 @@ public class RentalDAO {
             pstmt.setDate(4, Date.valueOf(rental.getEndDate()));
 
             int affectedRows = pstmt.executeUpdate();
+            CREATE_RENTAL.success(start);
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("Database error creating rental: " + e.getMessage());
+            CREATE_RENTAL.failure(start, e);
+            LOG.error("Database error creating rental: {}", e.getMessage());
             return false;
         }
     }
 
-    // Method to find a rental by its ID
-    public Rental findRentalById(int rentalId) {
-        String sql = "SELECT id, user_id, car_id, start_date, end_date FROM rentals WHERE id = ?";
-        Rental rental = null;
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // Books the car for the rental's dates; the bookings in rentals are what decides who has a car when.
+    // One transaction: the car row is locked first, so concurrent bookings of the same car queue up behind each
+    // other and the overlap check then sees every booking committed before it (an exclusion constraint cannot do
+    // this, since a partitioned rentals table cannot have one on a date range).
+    // A booking overlaps a live rental if their dates meet; an overdue rental counts as open-ended.
+    // Only a rental that starts today needs the car now: it must be 'available' and is flipped to 'rented' in the
+    // same transaction. Later bookings leave the status alone; the car is handed over on the first day
+    // (see startDueRentals).
+    // On success the rental's id and car id are filled in and the car (with its new status) is returned; otherwise null.
+    public Car bookCar(Rental rental, String carNum, LocalDate today) {
+        String lockSql = "SELECT id, car_num, car_type, car_name, status FROM cars WHERE car_num = ? FOR UPDATE";
+        String insertSql = "WITH clash AS ("
+                + "    SELECT 1 FROM rentals WHERE car_id = ? AND rental_status IN ('active', 'overdue')"
+                + "    AND start_date <= ? AND (end_date >= ? OR rental_status = 'overdue') AND start_date >= ? LIMIT 1"
+                + ") "
+                + "INSERT INTO rentals (user_id, car_id, start_date, end_date) "
+                + "SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM clash) "
+                + "RETURNING id";
+        String claimSql = "UPDATE cars SET status = 'rented' WHERE id = ? RETURNING id, car_num, car_type, car_name, status";
+        boolean startsToday = !rental.getStartDate().isAfter(today);
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Car car = null;
+                try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+                    pstmt.setString(1, carNum);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            car = readCar(rs);
+                        }
+                    }
+                }
+                int rentalId = 0;
+                if (car != null && (!startsToday || car.getStatus() == CarStatus.AVAILABLE)) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                        pstmt.setInt(1, car.getId());
+                        pstmt.setDate(2, Date.valueOf(rental.getEndDate()));
+                        pstmt.setDate(3, Date.valueOf(rental.getStartDate()));
+                        pstmt.setDate(4, Date.valueOf(hotFrom));
+                        pstmt.setInt(5, rental.getUserId());
+                        pstmt.setInt(6, car.getId());
+                        pstmt.setDate(7, Date.valueOf(rental.getStartDate()));
+                        pstmt.setDate(8, Date.valueOf(rental.getEndDate()));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (rs.next()) {
+                                rentalId = rs.getInt("id");
+                            }
+                        }
+                    }
+                }
+                if (rentalId != 0 && startsToday) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(claimSql)) {
+                        pstmt.setInt(1, car.getId());
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            rs.next();
+                            car = readCar(rs);
+                        }
+                    }
+                }
+                conn.commit();
+                BOOK_CAR.success(start); // no rental just means the car was taken for those dates
+                if (rentalId == 0) {
+                    return null;
+                }
+                rental.setId(rentalId);
+                rental.setCarId(car.getId());
+                return car;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            BOOK_CAR.failure(start, e);
+            LOG.error("Database error creating rental: {}", e.getMessage());
+        }
+        return null;
+    }
 
-            pstmt.setInt(1, rentalId);
-            ResultSet rs = pstmt.executeQuery();
+    // Returns and settles every rented car among carNums (one car for a single return, hundreds for a depot
+    // check-in) in one transaction, with one statement per step whatever the number of cars:
+    // 1. one lookup (car_num = ANY) tells unknown car numbers from cars that are not rented
+    // 2. one conditional UPDATE flips the rented cars to 'available'; a car returned concurrently is skipped
+    // 3. the rental each car is out on (its earliest live rental that has started) is read and locked through
+    //    idx_rentals_live_car; later bookings of the same car are left alone, even one whose first day has come
+    //    while the car was late
+    // 4. one multi-row UPDATE stamps each of them completed, with the return date and the final cost
+    public BulkReturnResult returnCars(Collection<String> carNums, LocalDate returnDate, RentalSettlement settlement) {
+        String findSql = "SELECT id, car_num, car_type, car_name, status FROM cars WHERE car_num = ANY(?)";
+        String returnSql = "UPDATE cars SET status = 'available' WHERE id = ANY(?) AND status = 'rented' "
+                + "RETURNING id, car_num, car_type, car_name, status";
+        String liveSql = "SELECT id, user_id, car_id, start_date, end_date FROM rentals "
+                + "WHERE car_id = ANY(?) AND rental_status IN ('active', 'overdue') "
+                + "AND start_date <= ? AND start_date >= ? ORDER BY car_id, start_date FOR UPDATE";
+        String settleSql = "UPDATE rentals r SET rental_status = 'completed', actual_return_date = ?, "
+                + "total_cost = s.cost, "
+                + "late_fee = CASE WHEN s.late > 0 THEN s.late ELSE r.late_fee END, "
+                + "late_fee_through = CASE WHEN s.late > 0 THEN ? ELSE r.late_fee_through END, "
+                + "updated_at = CURRENT_TIMESTAMP "
+                + "FROM unnest(?::int[], ?::numeric[], ?::numeric[]) AS s(id, cost, late) "
+                + "WHERE r.id = s.id AND r.start_date >= ?";
+        BulkReturnResult result = new BulkReturnResult(carNums);
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> rentedIds = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(findSql)) {
+                    pstmt.setArray(1, conn.createArrayOf("varchar", result.getCarNums().toArray()));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Car car = readCar(rs);
+                            result.recordFound(car);
+                            if (car.getStatus() == CarStatus.RENTED) {
+                                rentedIds.add(car.getId());
+                            }
+                        }
+                    }
+                }
+                Map<Integer, Car> returned = new HashMap<>();
+                if (!rentedIds.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(returnSql)) {
+                        pstmt.setArray(1, conn.createArrayOf("integer", rentedIds.toArray()));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                Car car = readCar(rs);
+                                result.recordReturned(car);
+                                returned.put(car.getId(), car);
+                            }
+                        }
+                    }
+                }
+                if (!returned.isEmpty()) {
+                    settleRentals(conn, liveSql, settleSql, returned, returnDate, settlement, result);
+                }
+                conn.commit();
+                RETURN_CARS.success(start);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            RETURN_CARS.failure(start, e);
+            LOG.error("Database error returning cars: {}", e.getMessage());
+            result.markFailed();
+        }
+        return result;
+    }
 
-            if (rs.next()) {
-                rental = new Rental(
-                        rs.getInt("id"),
-                        rs.getInt("user_id"),
-                        rs.getInt("car_id"),
-                        rs.getDate("start_date").toLocalDate(), // Convert java.sql.Date to LocalDate
-                        rs.getDate("end_date").toLocalDate()
-                );
+    // Steps 3 and 4 of returnCars: prices the rental of every returned car and writes them all back at once
+    private void settleRentals(Connection conn, String liveSql, String settleSql, Map<Integer, Car> returned,
+                               LocalDate returnDate, RentalSettlement settlement, BulkReturnResult result)
+            throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<Double> costs = new ArrayList<>();
+        List<Double> lateFees = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(liveSql)) {
+            pstmt.setArray(1, conn.createArrayOf("integer", returned.keySet().toArray()));
+            pstmt.setDate(2, Date.valueOf(returnDate));
+            pstmt.setDate(3, Date.valueOf(hotFrom));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int lastCarId = 0;
+                while (rs.next()) {
+                    if (rs.getInt("car_id") == lastCarId) continue; // a booking waiting for this car
+                    lastCarId = rs.getInt("car_id");
+                    Car car = returned.get(lastCarId);
+                    RentalSettlement.Bill bill = settlement.settle(car.getId(), car.getCarType(),
+                            rs.getDate("start_date").toLocalDate(), rs.getDate("end_date").toLocalDate(), returnDate);
+                    ids.add(rs.getInt("id"));
+                    costs.add(bill.getTotalCost());
+                    lateFees.add(bill.getLateFee());
+                    result.recordSettledRental(car.getCarNum(), rs.getInt("id"), rs.getInt("user_id"), bill.getTotalCost());
+                }
+            }
+        }
+        if (ids.isEmpty()) return;
+        try (PreparedStatement pstmt = conn.prepareStatement(settleSql)) {
+            pstmt.setDate(1, Date.valueOf(returnDate));
+            pstmt.setDate(2, Date.valueOf(returnDate));
+            pstmt.setArray(3, conn.createArrayOf("integer", ids.toArray()));
+            pstmt.setArray(4, conn.createArrayOf("numeric", costs.toArray()));
+            pstmt.setArray(5, conn.createArrayOf("numeric", lateFees.toArray()));
+            pstmt.setDate(6, Date.valueOf(hotFrom));
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static Car readCar(ResultSet rs) throws SQLException {
+        return new Car(
+                rs.getInt("id"),
+                rs.getString("car_num"),
+                CarType.of(rs.getString("car_type")),
+                rs.getString("car_name"),
+                CarStatus.fromDb(rs.getString("status"))
+        );
+    }
+
+    // Method to find a rental by its ID (the hot table first, then the archive if there is one)
+    public Rental findRentalById(int rentalId) {
+        Rental rental = null;
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            rental = findRentalById(conn, "SELECT id, user_id, car_id, start_date, end_date FROM rentals WHERE id = ?", rentalId);
+            if (rental == null && archiveTier) {
+                rental = findRentalById(conn, "SELECT id, user_id, car_id, start_date, end_date FROM rentals_archive WHERE id = ?", rentalId);
             }
+            FIND_BY_ID.success(start);
         } catch (SQLException e) {
-            System.err.println("Database error during rental lookup: " + e.getMessage());
+            FIND_BY_ID.failure(start, e);
+            LOG.error("Database error during rental lookup: {}", e.getMessage());
         }
         return rental;
     }
 
-    // Method to get all active rentals for a specific user
-    public List<Rental> getRentalsByUserId(int userId) {
+    private Rental findRentalById(Connection conn, String sql, int rentalId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, rentalId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Rental(
+                            rs.getInt("id"),
+                            rs.getInt("user_id"),
+                            rs.getInt("car_id"),
+                            rs.getDate("start_date").toLocalDate(), // Convert java.sql.Date to LocalDate
+                            rs.getDate("end_date").toLocalDate()
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    // Method to get all active rentals for a specific user (read-only: may be served by a replica that has
+    // replayed at least readAfterLsn)
+    public List<Rental> getRentalsByUserId(int userId, long readAfterLsn) {
         List<Rental> userRentals = new ArrayList<>();
-        // Assuming "active" means end_date is in the future or current
-        String sql = "SELECT id, user_id, car_id, start_date, end_date FROM rentals WHERE user_id = ? AND end_date >= CURRENT_DATE";
-        try (Connection conn = DatabaseManager.getConnection();
+        // "Active" means not settled yet: booked or out (active) or late (overdue); read through idx_rentals_live_user
+        String sql = "SELECT id, user_id, car_id, start_date, end_date FROM rentals "
+                + "WHERE user_id = ? AND rental_status IN ('active', 'overdue') AND start_date >= ?";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getReadConnection(readAfterLsn);
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(hotFrom));
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
@@ -74,28 +316,411 @@ public class RentalDAO {
                         rs.getDate("end_date").toLocalDate()
                 ));
             }
+            FIND_BY_USER.success(start);
         } catch (SQLException e) {
-            System.err.println("Database error retrieving user rentals: " + e.getMessage());
+            FIND_BY_USER.failure(start, e);
+            LOG.error("Database error retrieving user rentals: {}", e.getMessage());
         }
         return userRentals;
     }
 
-    // Method to update a rental (e.g., extend end date, mark as returned)
-    // For simplicity, this example just updates the end date.
-    // In a real system, you might add a 'status' to Rental like 'active', 'completed', 'cancelled'.
-    public boolean updateRentalEndDate(int rentalId, LocalDate newEndDate) {
-        String sql = "UPDATE rentals SET end_date = ? WHERE id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
+    // Streams the bookings that still occupy a car on or after the given date (used to build the booking calendar).
+    // A return completes its rental, so every active rental that has not ended is a booking, whether its car has
+    // been handed over yet or not.
+    public void forEachUpcomingRental(LocalDate fromDate, Consumer<Rental> consumer) {
+        String sql = "SELECT id, user_id, car_id, start_date, end_date FROM rentals "
+                + "WHERE end_date >= ? AND rental_status = 'active' AND start_date >= ? "
+                + "ORDER BY car_id, start_date";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false); // lets the driver stream with a cursor instead of loading every row
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(1000);
+                pstmt.setDate(1, Date.valueOf(fromDate));
+                pstmt.setDate(2, Date.valueOf(hotFrom));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(new Rental(
+                                rs.getInt("id"),
+                                rs.getInt("user_id"),
+                                rs.getInt("car_id"),
+                                rs.getDate("start_date").toLocalDate(),
+                                rs.getDate("end_date").toLocalDate()
+                        ));
+                    }
+                }
+            }
+            conn.commit();
+            LOAD_UPCOMING.success(start);
+        } catch (SQLException e) {
+            LOAD_UPCOMING.failure(start, e);
+            LOG.error("Database error loading upcoming rentals: {}", e.getMessage());
+        }
+    }
+
+    // Active rentals of a user together with their car, fetched with a single JOIN (no per-row car lookups).
+    // Read-only, so it may be served by a replica that has replayed at least readAfterLsn.
+    public List<RentalDetails> getRentalDetailsByUserId(int userId, long readAfterLsn) {
+        List<RentalDetails> details = new ArrayList<>();
+        String sql = "SELECT r.id, r.car_id, c.car_num, c.car_name, c.car_type, r.start_date, r.end_date "
+                + "FROM rentals r JOIN cars c ON c.id = r.car_id "
+                + "WHERE r.user_id = ? AND r.rental_status IN ('active', 'overdue') "
+                + "AND r.start_date >= ? "
+                + "ORDER BY r.start_date, r.id";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getReadConnection(readAfterLsn);
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setDate(1, Date.valueOf(newEndDate));
-            pstmt.setInt(2, rentalId);
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, Date.valueOf(hotFrom));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    details.add(new RentalDetails(
+                            rs.getInt("id"),
+                            rs.getInt("car_id"),
+                            rs.getString("car_num"),
+                            rs.getString("car_name"),
+                            CarType.of(rs.getString("car_type")),
+                            rs.getDate("start_date").toLocalDate(),
+                            rs.getDate("end_date").toLocalDate()
+                    ));
+                }
+            }
+            DETAILS_BY_USER.success(start);
+        } catch (SQLException e) {
+            DETAILS_BY_USER.failure(start, e);
+            LOG.error("Database error retrieving user rentals: {}", e.getMessage());
+        }
+        return details;
+    }
 
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+    // Moves the end date of a rental that is still 'active', the same way bookCar books: in one transaction the
+    // car row is locked first, and the end date only moves if no other live rental of the car starts between the
+    // old and the new end date. So an extension and a booking of the days after it cannot both win.
+    // An overdue rental is not extended: its late fee is owed already, and the sweeper would overwrite it when the
+    // new end date passes. Completed and cancelled rentals are left alone too. The rental's own start and end date
+    // are matched as well, so a rental changed since it was read is not extended from stale dates.
+    // Returns false if the rental did not qualify or the car is booked in between (or on a database error).
+    public boolean updateRentalEndDate(Rental rental, LocalDate newEndDate) {
+        String lockSql = "SELECT id FROM cars WHERE id = ? FOR UPDATE";
+        String sql = "UPDATE rentals r SET end_date = ?, updated_at = CURRENT_TIMESTAMP "
+                + "WHERE r.id = ? AND r.start_date = ? AND r.end_date = ? AND r.rental_status = 'active' "
+                + "AND NOT EXISTS (SELECT 1 FROM rentals o WHERE o.car_id = r.car_id AND o.id <> r.id"
+                + "    AND o.rental_status IN ('active', 'overdue')"
+                + "    AND o.start_date > ? AND o.start_date <= ? AND o.start_date >= ?)";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+                    pstmt.setInt(1, rental.getCarId());
+                    pstmt.executeQuery().close();
+                }
+                int affectedRows;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setDate(1, Date.valueOf(newEndDate));
+                    pstmt.setInt(2, rental.getId());
+                    pstmt.setDate(3, Date.valueOf(rental.getStartDate()));
+                    pstmt.setDate(4, Date.valueOf(rental.getEndDate()));
+                    pstmt.setDate(5, Date.valueOf(rental.getEndDate()));
+                    pstmt.setDate(6, Date.valueOf(newEndDate));
+                    pstmt.setDate(7, Date.valueOf(hotFrom));
+                    affectedRows = pstmt.executeUpdate();
+                }
+                conn.commit();
+                UPDATE_END_DATE.success(start);
+                return affectedRows > 0;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
-            System.err.println("Database error updating rental end date: " + e.getMessage());
+            UPDATE_END_DATE.failure(start, e);
+            LOG.error("Database error updating rental end date: {}", e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+
+    // --- Hot/cold routing (see RentalPartitionManager) ---
+
+    // Earliest start date of any rental that active queries can return; today when there are none, null on error
+    public LocalDate findOldestLiveStartDate(LocalDate today) {
+        String sql = "SELECT LEAST("
+                + "(SELECT min(start_date) FROM rentals WHERE rental_status IN ('active', 'overdue')), "
+                + "(SELECT min(start_date) FROM rentals WHERE end_date >= ?)) AS oldest";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(today));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                FIND_OLDEST_LIVE.success(start);
+                Date oldest = rs.next() ? rs.getDate("oldest") : null;
+                return oldest == null || oldest.toLocalDate().isAfter(today) ? today : oldest.toLocalDate();
+            }
+        } catch (SQLException e) {
+            FIND_OLDEST_LIVE.failure(start, e);
+            LOG.error("Database error finding the oldest live rental: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public LocalDate getHotFrom() { return hotFrom; }
+    public void setHotFrom(LocalDate hotFrom) { this.hotFrom = hotFrom; }
+    public void setArchiveTier(boolean archiveTier) { this.archiveTier = archiveTier; }
+
+    // --- Overdue sweep (see OverdueRentalSweeper) ---
+
+    // Where the named sweeper stopped; a sweeper without a row starts from the beginning
+    public SweepPosition loadSweepPosition(String sweeper) {
+        String sql = "SELECT last_end_date, last_id FROM sweeper_state WHERE name = ?";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, sweeper);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                LOAD_SWEEP_POSITION.success(start);
+                if (rs.next()) {
+                    return new SweepPosition(rs.getDate("last_end_date").toLocalDate(), rs.getInt("last_id"));
+                }
+                return SweepPosition.START;
+            }
+        } catch (SQLException e) {
+            LOAD_SWEEP_POSITION.failure(start, e);
+            LOG.error("Database error loading sweeper position: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // The next rentals (at most limit) after the given position that ended before the given date, in (end_date, id)
+    // order, so each batch is one short range read on idx_rentals_end_date_id. Every rental in the range is returned,
+    // since the position has to move past all of them; stillOut tells which ones are really overdue: still active,
+    // the car still rented and no earlier live rental of that car (the car is out on its earliest one, see
+    // returnCars). A rental that is still active but not out never got its car (neverPickedUp).
+    public List<OverdueRental> findRentalsEndedAfter(SweepPosition after, LocalDate before, int limit) {
+        List<OverdueRental> rentals = new ArrayList<>();
+        String sql = "SELECT r.id, r.user_id, r.car_id, c.car_type, r.start_date, r.end_date, "
+                + "       r.rental_status = 'active' AS live, "
+                + "       (r.rental_status = 'active' AND c.status = 'rented' AND NOT EXISTS ("
+                + "            SELECT 1 FROM rentals e WHERE e.car_id = r.car_id AND e.id <> r.id"
+                + "            AND e.start_date < r.start_date AND e.start_date >= ?"
+                + "            AND e.rental_status IN ('active', 'overdue'))) AS still_out "
+                + "FROM rentals r JOIN cars c ON c.id = r.car_id "
+                + "WHERE (r.end_date, r.id) > (?, ?) AND r.end_date < ? "
+                + "ORDER BY r.end_date, r.id LIMIT ?";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(hotFrom));
+            pstmt.setDate(2, Date.valueOf(after.getEndDate()));
+            pstmt.setInt(3, after.getId());
+            pstmt.setDate(4, Date.valueOf(before));
+            pstmt.setInt(5, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    boolean stillOut = rs.getBoolean("still_out");
+                    rentals.add(new OverdueRental(
+                            rs.getInt("id"),
+                            rs.getInt("user_id"),
+                            rs.getInt("car_id"),
+                            CarType.of(rs.getString("car_type")),
+                            rs.getDate("start_date").toLocalDate(),
+                            rs.getDate("end_date").toLocalDate(),
+                            0.0,
+                            stillOut,
+                            rs.getBoolean("live") && !stillOut
+                    ));
+                }
+            }
+            FIND_ENDED.success(start);
+            return rentals;
+        } catch (SQLException e) {
+            FIND_ENDED.failure(start, e);
+            LOG.error("Database error scanning ended rentals: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // In one short transaction: marks the given rentals overdue with their late fees (one multi-row UPDATE),
+    // queues a notification for each rental that actually changed (one multi-row INSERT), cancels the bookings
+    // that ended without their car ever going out (noShows) and moves the sweeper position to next.
+    // Rentals returned in the meantime are skipped by the status condition.
+    // Returns the ids that were marked, or null if nothing was written.
+    public List<Integer> markOverdue(List<OverdueRental> rentals, double[] fees, LocalDate feesThrough,
+                                     List<OverdueRental> noShows, String sweeper, SweepPosition next) {
+        String markSql = "WITH batch AS ("
+                + "    SELECT * FROM unnest(?::int[], ?::numeric[]) AS b(id, fee)"
+                + "), marked AS ("
+                + "    UPDATE rentals r SET rental_status = 'overdue', late_fee = b.fee, late_fee_through = ?,"
+                + "           updated_at = CURRENT_TIMESTAMP"
+                + "    FROM batch b WHERE r.id = b.id AND r.rental_status = 'active'"
+                + "    RETURNING r.id, r.user_id, r.end_date, r.late_fee"
+                + "), notified AS ("
+                + "    INSERT INTO rental_notifications (rental_id, user_id, kind, message)"
+                + "    SELECT id, user_id, 'overdue', 'Rental ' || id || ' was due back on ' || end_date"
+                + "           || '. Late fee so far: ' || late_fee FROM marked"
+                + ") "
+                + "SELECT id FROM marked";
+        String cancelSql = "UPDATE rentals SET rental_status = 'cancelled', updated_at = CURRENT_TIMESTAMP "
+                + "WHERE id = ANY(?) AND rental_status = 'active'";
+        // Never moves backwards, so two sweepers on the same database cannot undo each other's progress
+        String positionSql = "INSERT INTO sweeper_state (name, last_end_date, last_id) VALUES (?, ?, ?) "
+                + "ON CONFLICT (name) DO UPDATE SET last_end_date = EXCLUDED.last_end_date, "
+                + "last_id = EXCLUDED.last_id, updated_at = CURRENT_TIMESTAMP "
+                + "WHERE (sweeper_state.last_end_date, sweeper_state.last_id) < (EXCLUDED.last_end_date, EXCLUDED.last_id)";
+        List<Integer> marked = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!rentals.isEmpty()) {
+                    Integer[] ids = new Integer[rentals.size()];
+                    Double[] amounts = new Double[rentals.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = rentals.get(i).getId();
+                        amounts[i] = fees[i];
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(markSql)) {
+                        pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                        pstmt.setArray(2, conn.createArrayOf("numeric", amounts));
+                        pstmt.setDate(3, Date.valueOf(feesThrough));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                marked.add(rs.getInt("id"));
+                            }
+                        }
+                    }
+                }
+                if (!noShows.isEmpty()) {
+                    Integer[] ids = new Integer[noShows.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = noShows.get(i).getId();
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement(cancelSql)) {
+                        pstmt.setArray(1, conn.createArrayOf("integer", ids));
+                        pstmt.executeUpdate();
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(positionSql)) {
+                    pstmt.setString(1, sweeper);
+                    pstmt.setDate(2, Date.valueOf(next.getEndDate()));
+                    pstmt.setInt(3, next.getId());
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                MARK_OVERDUE.success(start);
+                return marked;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            MARK_OVERDUE.failure(start, e);
+            LOG.error("Database error marking rentals overdue: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Hands cars over to the bookings whose first day has come: an 'available' car whose earliest live rental
+    // covers today is set to 'rented' (bookings made for a later day do not touch the car when they are made).
+    // A car that is still out, or in maintenance, keeps its booking waiting. Returns the cars handed over, null on error.
+    public List<Car> startDueRentals(LocalDate today) {
+        String sql = "UPDATE cars c SET status = 'rented' FROM rentals r "
+                + "WHERE r.car_id = c.id AND c.status = 'available' AND r.rental_status = 'active' "
+                + "AND r.start_date <= ? AND r.end_date >= ? AND r.start_date >= ? "
+                + "AND NOT EXISTS (SELECT 1 FROM rentals e WHERE e.car_id = r.car_id AND e.id <> r.id "
+                + "    AND e.start_date < r.start_date AND e.start_date >= ? "
+                + "    AND e.rental_status IN ('active', 'overdue')) "
+                + "RETURNING c.id, c.car_num, c.car_type, c.car_name, c.status";
+        List<Car> started = new ArrayList<>();
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(today));
+            pstmt.setDate(2, Date.valueOf(today));
+            pstmt.setDate(3, Date.valueOf(hotFrom));
+            pstmt.setDate(4, Date.valueOf(hotFrom));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    started.add(readCar(rs));
+                }
+            }
+            START_DUE.success(start);
+            return started;
+        } catch (SQLException e) {
+            START_DUE.failure(start, e);
+            LOG.error("Database error handing over booked cars: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Overdue rentals whose late fee has not been brought up to the given date yet (at most limit).
+    // Only overdue rentals are read, through idx_rentals_status, so this stays small however big rentals gets.
+    public List<OverdueRental> findOverdueFeesDue(LocalDate through, int limit) {
+        List<OverdueRental> rentals = new ArrayList<>();
+        String sql = "SELECT r.id, r.user_id, r.car_id, c.car_type, r.start_date, r.end_date, "
+                + "       COALESCE(r.late_fee, 0) AS late_fee, c.status = 'rented' AS still_out "
+                + "FROM rentals r JOIN cars c ON c.id = r.car_id "
+                + "WHERE r.rental_status = 'overdue' AND (r.late_fee_through IS NULL OR r.late_fee_through < ?) "
+                + "ORDER BY r.id LIMIT ?";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(through));
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rentals.add(new OverdueRental(
+                            rs.getInt("id"),
+                            rs.getInt("user_id"),
+                            rs.getInt("car_id"),
+                            CarType.of(rs.getString("car_type")),
+                            rs.getDate("start_date").toLocalDate(),
+                            rs.getDate("end_date").toLocalDate(),
+                            rs.getDouble("late_fee"),
+                            rs.getBoolean("still_out"),
+                            false
+                    ));
+                }
+            }
+            FIND_FEES_DUE.success(start);
+            return rentals;
+        } catch (SQLException e) {
+            FIND_FEES_DUE.failure(start, e);
+            LOG.error("Database error loading overdue rentals: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Sets the late fees of many overdue rentals in one multi-row UPDATE; returns the number of rows changed or -1
+    public int updateLateFees(List<OverdueRental> rentals, double[] fees, LocalDate feesThrough) {
+        String sql = "UPDATE rentals r SET late_fee = u.fee, late_fee_through = ?, updated_at = CURRENT_TIMESTAMP "
+                + "FROM unnest(?::int[], ?::numeric[]) AS u(id, fee) "
+                + "WHERE r.id = u.id AND r.rental_status = 'overdue'";
+        Integer[] ids = new Integer[rentals.size()];
+        Double[] amounts = new Double[rentals.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rentals.get(i).getId();
+            amounts[i] = fees[i];
+        }
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setDate(1, Date.valueOf(feesThrough));
+            pstmt.setArray(2, conn.createArrayOf("integer", ids));
+            pstmt.setArray(3, conn.createArrayOf("numeric", amounts));
+            int updated = pstmt.executeUpdate();
+            UPDATE_LATE_FEES.success(start);
+            return updated;
+        } catch (SQLException e) {
+            UPDATE_LATE_FEES.failure(start, e);
+            LOG.error("Database error updating late fees: {}", e.getMessage());
+            return -1;
+        }
+    }
+}
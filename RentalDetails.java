@@ -0,0 +1,36 @@
+import java.time.LocalDate;
+
+// Read-only projection of a rental joined with its car, used for listing a user's rentals in one query
+public class RentalDetails {
+    private int rentalId;
+    private int carId;
+    private String carNum;
+    private String carName;
+    private CarType carType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private double estimatedCost; // Filled in by RentalService
+
+    public RentalDetails(int rentalId, int carId, String carNum, String carName, CarType carType,
+                         LocalDate startDate, LocalDate endDate) {
+        this.rentalId = rentalId;
+        this.carId = carId;
+        this.carNum = carNum;
+        this.carName = carName;
+        this.carType = carType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    // Getters
+    public int getRentalId() { return rentalId; }
+    public int getCarId() { return carId; }
+    public String getCarNum() { return carNum; }
+    public String getCarName() { return carName; }
+    public CarType getCarType() { return carType; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public double getEstimatedCost() { return estimatedCost; }
+
+    public void setEstimatedCost(double estimatedCost) { this.estimatedCost = estimatedCost; }
+}
@@ -0,0 +1,73 @@
+import java.time.Instant;
+import java.time.LocalDate;
+
+// One entry of the rental journal: a status transition of a car or rental.
+// Ids that do not apply to an event type are 0; dates that do not apply are null.
+public class RentalEvent {
+    public enum Type {
+        RENTED(1),        // rental created (status: the car's status after it, 'rented' when it starts today)
+        RETURNED(2),      // car back and available
+        EXTENDED(3),      // rental end date moved (endDate = new end date)
+        STATUS_CHANGED(4),// car status set directly (status)
+        CAR_ADDED(5),     // new car in the fleet
+        OVERDUE(6);       // end date passed without a return (rentalId, dates of the rental)
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() { return code; }
+
+        public static Type fromCode(int code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            return null;
+        }
+    }
+
+    private final long sequence;
+    private final long timestampMillis;
+    private final Type type;
+    private final int carId;
+    private final int userId;
+    private final int rentalId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final CarStatus status;
+
+    public RentalEvent(long sequence, long timestampMillis, Type type, int carId, int userId, int rentalId,
+                       LocalDate startDate, LocalDate endDate, CarStatus status) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.carId = carId;
+        this.userId = userId;
+        this.rentalId = rentalId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public Type getType() { return type; }
+    public int getCarId() { return carId; }
+    public int getUserId() { return userId; }
+    public int getRentalId() { return rentalId; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public CarStatus getStatus() { return status; }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + Instant.ofEpochMilli(timestampMillis) + " " + type
+                + " car=" + carId + " user=" + userId + " rental=" + rentalId
+                + (startDate != null ? " start=" + startDate : "")
+                + (endDate != null ? " end=" + endDate : "")
+                + (status != null ? " status=" + status : "");
+    }
+}
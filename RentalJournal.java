@@ -0,0 +1,348 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Append-only journal of rental events in memory-mapped segment files (journal.dir, default ./journal).
+// - every event is one fixed 48-byte record, written with a few absolute puts into the mapped segment: no syscall,
+//   no allocation, well under a microsecond
+// - a background thread forces (fsyncs) the segment every journal.flushIntervalMillis, so one fsync covers every
+//   event appended since the last one (group commit); awaitDurable() waits for that when a caller needs it
+// - when a segment is full the journal rolls to a new file named after its first sequence number
+// - read()/replay() stream events back in order, e.g. for analytics, audit or rebuilding caches, and can be used
+//   from another process on the same directory
+// Record layout (little endian): sequence(8) timestamp(8) type(1) status(1) reserved(2) carId(4) userId(4)
+// rentalId(4) startEpochDay(4) endEpochDay(4) reserved(4) checksum(4). Sequences start at 1 and have no gaps,
+// so a zero or out-of-order sequence or a bad checksum marks the end of the written part of a segment.
+public class RentalJournal implements AutoCloseable {
+    private static final Log LOG = Log.get(RentalJournal.class);
+    static final int RECORD_BYTES = 48;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final String PREFIX = "rentals-";
+    private static final String SUFFIX = ".journal";
+    private static final CarStatus[] STATUSES = CarStatus.values(); // status code = ordinal + 1, 0 = none
+
+    private static final OperationMetrics APPEND = Metrics.operation("journal.append");
+    private static final OperationMetrics FLUSH = Metrics.operation("journal.flush");
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean enabled;
+    private final Object durableLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    // Guarded by this
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence = 1;
+    private boolean closed;
+
+    private volatile long lastSequence;
+    private volatile long durableSequence;
+    private volatile int segmentCount;
+
+    private RentalJournal(Path dir, int segmentBytes, boolean enabled) {
+        this.dir = dir;
+        this.segmentBytes = Math.max(RECORD_BYTES, segmentBytes / RECORD_BYTES * RECORD_BYTES);
+        this.enabled = enabled;
+    }
+
+    public static RentalJournal fromConfig(DatabaseConfig config) {
+        boolean enabled = Boolean.parseBoolean(config.getString("journal.enabled", "true"));
+        Path dir = Paths.get(config.getString("journal.dir", "journal"));
+        int segmentBytes = (int) Math.min(1L << 30, config.getLong("journal.segmentMegabytes", 64) * 1024 * 1024);
+        RentalJournal journal = new RentalJournal(dir, segmentBytes, enabled);
+        if (enabled) {
+            try {
+                journal.open(config.getLong("journal.flushIntervalMillis", 10));
+            } catch (IOException e) {
+                // The journal is a record of what happened, not part of it: rentals keep working without it
+                LOG.warn("Rental journal disabled, could not open {}: {}", dir, e.getMessage());
+                return new RentalJournal(dir, segmentBytes, false);
+            }
+        }
+        return journal;
+    }
+
+    private void open(long flushIntervalMillis) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> segments = listSegments(dir);
+        if (segments.isEmpty()) {
+            mapSegment(1);
+        } else {
+            // Resume after the last valid record of the newest segment
+            Path last = segments.get(segments.size() - 1);
+            long first = firstSequenceOf(last);
+            segment = map(last, FileChannel.MapMode.READ_WRITE, segmentBytes);
+            long expected = first;
+            int offset = 0;
+            while (offset + RECORD_BYTES <= segment.capacity() && decode(segment, offset, expected) != null) {
+                expected++;
+                offset += RECORD_BYTES;
+            }
+            position = offset;
+            nextSequence = expected;
+            lastSequence = expected - 1;
+            durableSequence = expected - 1;
+        }
+        segmentCount = Math.max(1, segments.size());
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rental-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+
+        Metrics.gauge("journal.lastSequence", () -> lastSequence);
+        Metrics.gauge("journal.durableSequence", () -> durableSequence);
+        Metrics.gauge("journal.segments", () -> segmentCount);
+    }
+
+    // --- Writing ---
+
+    // Appends one event and returns its sequence number (0 when the journal is disabled or closed)
+    public long append(RentalEvent.Type type, int carId, int userId, int rentalId,
+                       LocalDate startDate, LocalDate endDate, CarStatus status) {
+        if (!enabled) return 0;
+        long start = System.nanoTime();
+        long timestamp = System.currentTimeMillis();
+        int startDay = startDate == null ? NO_DATE : (int) startDate.toEpochDay();
+        int endDay = endDate == null ? NO_DATE : (int) endDate.toEpochDay();
+        int statusCode = statusCode(status);
+        long sequence;
+        synchronized (this) {
+            if (closed) return 0;
+            if (position + RECORD_BYTES > segment.capacity()) {
+                try {
+                    roll();
+                } catch (IOException e) {
+                    APPEND.failure(start);
+                    LOG.error("Rental journal could not start a new segment: {}", e.getMessage());
+                    return 0;
+                }
+            }
+            sequence = nextSequence++;
+            MappedByteBuffer buf = segment;
+            int p = position;
+            buf.putLong(p, sequence);
+            buf.putLong(p + 8, timestamp);
+            buf.put(p + 16, (byte) type.getCode());
+            buf.put(p + 17, (byte) statusCode);
+            buf.putInt(p + 20, carId);
+            buf.putInt(p + 24, userId);
+            buf.putInt(p + 28, rentalId);
+            buf.putInt(p + 32, startDay);
+            buf.putInt(p + 36, endDay);
+            buf.putInt(p + 44, checksum(sequence, timestamp, type.getCode(), statusCode, carId, userId, rentalId, startDay, endDay));
+            position = p + RECORD_BYTES;
+            lastSequence = sequence;
+        }
+        APPEND.success(start);
+        return sequence;
+    }
+
+    // Blocks until the event with this sequence has been forced to disk (or the timeout passes)
+    public boolean awaitDurable(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (durableLock) {
+            while (durableSequence < sequence) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                durableLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    // Group commit: one force() for everything appended since the last run
+    private void flush() {
+        MappedByteBuffer current;
+        long upTo;
+        synchronized (this) {
+            if (closed || lastSequence == durableSequence) return;
+            current = segment;
+            upTo = lastSequence;
+        }
+        long start = System.nanoTime();
+        try {
+            current.force();
+            FLUSH.success(start);
+        } catch (RuntimeException e) {
+            FLUSH.failure(start);
+            LOG.error("Rental journal flush failed: {}", e.getMessage());
+            return;
+        }
+        markDurable(upTo);
+    }
+
+    private void markDurable(long upTo) {
+        synchronized (durableLock) {
+            if (upTo > durableSequence) {
+                durableSequence = upTo;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    // Called with the lock held when the current segment is full
+    private void roll() throws IOException {
+        segment.force(); // everything in the old segment is durable before the new file appears
+        markDurable(lastSequence);
+        mapSegment(nextSequence);
+        segmentCount++;
+    }
+
+    private void mapSegment(long firstSequence) throws IOException {
+        segment = map(dir.resolve(segmentName(firstSequence)), FileChannel.MapMode.READ_WRITE, segmentBytes);
+        position = 0;
+    }
+
+    @Override
+    public void close() {
+        if (!enabled) return;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        flusher.shutdown();
+        segment.force();
+        markDurable(lastSequence);
+    }
+
+    // --- Reading ---
+
+    // Events with sequence >= fromSequence, in order, up to what has been appended so far
+    public long replay(long fromSequence, Consumer<RentalEvent> consumer) {
+        return enabled ? read(dir, fromSequence, consumer) : 0;
+    }
+
+    // Streams the events of a journal directory (also usable from another process); returns the last sequence read
+    public static long read(Path dir, long fromSequence, Consumer<RentalEvent> consumer) {
+        long last = 0;
+        try {
+            List<Path> segments = listSegments(dir);
+            for (int i = 0; i < segments.size(); i++) {
+                // Skip segments that end before fromSequence
+                if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                    continue;
+                }
+                Path file = segments.get(i);
+                long expected = firstSequenceOf(file);
+                MappedByteBuffer buf = map(file, FileChannel.MapMode.READ_ONLY, 0);
+                for (int offset = 0; offset + RECORD_BYTES <= buf.capacity(); offset += RECORD_BYTES) {
+                    RentalEvent event = decode(buf, offset, expected);
+                    if (event == null) break;
+                    expected++;
+                    last = event.getSequence();
+                    if (last >= fromSequence) {
+                        consumer.accept(event);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read rental journal in " + dir, e);
+        }
+        return last;
+    }
+
+    // Null if the slot does not hold the expected, intact record
+    private static RentalEvent decode(ByteBuffer buf, int p, long expectedSequence) {
+        long sequence = buf.getLong(p);
+        if (sequence != expectedSequence) return null;
+        long timestamp = buf.getLong(p + 8);
+        int typeCode = buf.get(p + 16);
+        int statusCode = buf.get(p + 17);
+        int carId = buf.getInt(p + 20);
+        int userId = buf.getInt(p + 24);
+        int rentalId = buf.getInt(p + 28);
+        int startDay = buf.getInt(p + 32);
+        int endDay = buf.getInt(p + 36);
+        if (buf.getInt(p + 44) != checksum(sequence, timestamp, typeCode, statusCode, carId, userId, rentalId, startDay, endDay)) {
+            return null; // torn write at the tail
+        }
+        RentalEvent.Type type = RentalEvent.Type.fromCode(typeCode);
+        if (type == null) return null;
+        return new RentalEvent(sequence, timestamp, type, carId, userId, rentalId,
+                startDay == NO_DATE ? null : LocalDate.ofEpochDay(startDay),
+                endDay == NO_DATE ? null : LocalDate.ofEpochDay(endDay),
+                statusCode > 0 && statusCode <= STATUSES.length ? STATUSES[statusCode - 1] : null);
+    }
+
+    // --- Helpers ---
+
+    private static int checksum(long sequence, long timestamp, int type, int status, int carId, int userId,
+                                int rentalId, int startDay, int endDay) {
+        long h = sequence * 0x9E3779B97F4A7C15L;
+        h = (h ^ timestamp) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ ((long) type << 8 | status)) * 0x165667B19E3779F9L;
+        h = (h ^ ((long) carId << 32 | (userId & 0xffffffffL))) * 0x9E3779B97F4A7C15L;
+        h = (h ^ ((long) rentalId << 32 | (startDay & 0xffffffffL))) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ endDay) * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        return (int) (h ^ (h >>> 32)) | 1; // never 0, so a zero-filled slot can never pass
+    }
+
+    private static int statusCode(CarStatus status) {
+        return status == null ? 0 : status.ordinal() + 1;
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode, int size) throws IOException {
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = channel.map(mode, 0, channel.size());
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                return buf;
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < size) {
+                raf.setLength(size); // preallocate so appends never extend the file
+            }
+            MappedByteBuffer buf = raf.getChannel().map(mode, 0, raf.length());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return buf;
+        }
+    }
+
+    private static List<Path> listSegments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return segments;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort((a, b) -> Long.compare(firstSequenceOf(a), firstSequenceOf(b)));
+        return segments;
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX);
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    public long getLastSequence() { return lastSequence; }
+    public long getDurableSequence() { return durableSequence; }
+    public boolean isEnabled() { return enabled; }
+}
@@ -0,0 +1,253 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Housekeeping for the time-partitioned rentals layout (README, "Partitioned rentals"):
+// - rentals is range-partitioned by start_date into monthly partitions named rentals_pYYYY_MM (+ rentals_default)
+// - partitions for the next rentals.partitions.monthsAhead months are created ahead of time, and any month that
+//   has rows in rentals_default (e.g. history from before partitioning) gets its own partition; those rows are
+//   moved into the new partition in the same transaction
+// - a month older than rentals.partitions.archiveAfterMonths whose rentals are all finished is detached from
+//   rentals and attached to rentals_archive in one transaction: a catalog change, no rows are copied
+// - RentalDAO's hot window (start date of the oldest rental that can still be active) is refreshed every run, so
+//   queries for active rentals only touch the recent partitions
+// On an ordinary (unpartitioned) rentals table only the hot window is maintained. DDL runs with a short
+// lock_timeout: if live traffic holds the table, the step is skipped and retried on the next run.
+public class RentalPartitionManager {
+    private static final Log LOG = Log.get(RentalPartitionManager.class);
+    private static final OperationMetrics MAINTAIN = Metrics.operation("partitions.rentals.maintain");
+    private static final Pattern PARTITION_NAME = Pattern.compile("rentals_p(\\d{4})_(\\d{2})");
+
+    private final RentalDAO rentalDAO;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final long intervalMinutes;
+    private final long lockTimeoutMillis;
+    private ScheduledExecutorService scheduler;
+
+    private volatile int hotPartitions;
+    private volatile int archivedPartitions;
+
+    public RentalPartitionManager(RentalDAO rentalDAO, int monthsAhead, int archiveAfterMonths,
+                                  long intervalMinutes, long lockTimeoutMillis) {
+        this.rentalDAO = rentalDAO;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.archiveAfterMonths = Math.max(1, archiveAfterMonths);
+        this.intervalMinutes = intervalMinutes;
+        this.lockTimeoutMillis = Math.max(1, lockTimeoutMillis);
+
+        Metrics.gauge("partitions.rentals.hot", () -> hotPartitions);
+        Metrics.gauge("partitions.rentals.archived", () -> archivedPartitions);
+        Metrics.gauge("partitions.rentals.hotWindowDays",
+                () -> LocalDate.now().toEpochDay() - rentalDAO.getHotFrom().toEpochDay());
+    }
+
+    public static RentalPartitionManager fromConfig(RentalDAO rentalDAO, DatabaseConfig config) {
+        return new RentalPartitionManager(rentalDAO,
+                config.getInt("rentals.partitions.monthsAhead", 3),
+                config.getInt("rentals.partitions.archiveAfterMonths", 12),
+                config.getLong("rentals.partitions.intervalMinutes", 60),
+                config.getLong("rentals.partitions.lockTimeoutMillis", 2000));
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || intervalMinutes <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rental-partitions");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (RuntimeException e) {
+                LOG.error("Rental partition maintenance failed: {}", e.getMessage());
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public synchronized void runOnce() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        LocalDate hotFrom = rentalDAO.findOldestLiveStartDate(today);
+        if (hotFrom != null) {
+            rentalDAO.setHotFrom(hotFrom);
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            if (!isPartitioned(conn, "rentals")) {
+                MAINTAIN.record(start, hotFrom != null);
+                return;
+            }
+            boolean hasArchive = isPartitioned(conn, "rentals_archive");
+            List<YearMonth> months = listMonthPartitions(conn, "rentals");
+
+            YearMonth current = YearMonth.from(today);
+            List<YearMonth> wanted = listDefaultMonths(conn); // rows that landed in rentals_default get their own month
+            for (YearMonth month = current.minusMonths(1); !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+                if (!wanted.contains(month)) {
+                    wanted.add(month);
+                }
+            }
+            for (YearMonth month : wanted) {
+                if (!months.contains(month) && createPartition(conn, month)) {
+                    months.add(month);
+                }
+            }
+
+            YearMonth archiveBefore = current.minusMonths(archiveAfterMonths);
+            if (hasArchive) {
+                for (YearMonth month : new ArrayList<>(months)) {
+                    if (month.isBefore(archiveBefore) && archivePartition(conn, month)) {
+                        months.remove(month);
+                    }
+                }
+            }
+            hotPartitions = months.size();
+            archivedPartitions = hasArchive ? listMonthPartitions(conn, "rentals_archive").size() : 0;
+            rentalDAO.setArchiveTier(archivedPartitions > 0);
+            MAINTAIN.record(start, hotFrom != null);
+        } catch (SQLException e) {
+            MAINTAIN.failure(start, e);
+            LOG.error("Database error maintaining rental partitions: {}", e.getMessage());
+        }
+    }
+
+    // Creates the month's partition; rows already in rentals_default for that month move along with it
+    private boolean createPartition(Connection conn, YearMonth month) throws SQLException {
+        String name = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LOCAL lock_timeout = " + lockTimeoutMillis);
+            stmt.execute("CREATE TABLE " + name + " (LIKE rentals INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            if (tableExists(conn, "rentals_default")) {
+                try (PreparedStatement move = conn.prepareStatement("WITH moved AS ("
+                        + "DELETE FROM rentals_default WHERE start_date >= ? AND start_date < ? RETURNING *"
+                        + ") INSERT INTO " + name + " SELECT * FROM moved")) {
+                    move.setDate(1, Date.valueOf(from));
+                    move.setDate(2, Date.valueOf(to));
+                    int moved = move.executeUpdate();
+                    if (moved > 0) {
+                        LOG.info("Moved {} rental(s) from rentals_default into {}", moved, name);
+                    }
+                }
+            }
+            stmt.execute("ALTER TABLE rentals ATTACH PARTITION " + name
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            conn.commit();
+            LOG.info("Created rental partition {}", name);
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            LOG.warn("Could not create rental partition {} (will retry): {}", name, e.getMessage());
+            return false;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Moves a month of finished rentals from rentals to rentals_archive; false if it still has live rentals
+    private boolean archivePartition(Connection conn, YearMonth month) throws SQLException {
+        String name = partitionName(month);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + name
+                     + " WHERE rental_status IN ('active', 'overdue') LIMIT 1")) {
+            if (rs.next()) {
+                return false; // not everything in that month has been returned yet
+            }
+        }
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LOCAL lock_timeout = " + lockTimeoutMillis);
+            stmt.execute("ALTER TABLE rentals DETACH PARTITION " + name);
+            stmt.execute("ALTER TABLE rentals_archive ATTACH PARTITION " + name + " FOR VALUES FROM ('"
+                    + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            conn.commit();
+            LOG.info("Archived rental partition {}", name);
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            LOG.warn("Could not archive rental partition {} (will retry): {}", name, e.getMessage());
+            return false;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean isPartitioned(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(?)")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Months that have rows sitting in rentals_default, oldest first
+    private static List<YearMonth> listDefaultMonths(Connection conn) throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        if (!tableExists(conn, "rentals_default")) {
+            return months;
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT date_trunc('month', start_date)::date AS month "
+                     + "FROM rentals_default ORDER BY month")) {
+            while (rs.next()) {
+                months.add(YearMonth.from(rs.getDate(1).toLocalDate()));
+            }
+        }
+        return months;
+    }
+
+    // Months of the rentals_pYYYY_MM partitions attached to the given parent table
+    private static List<YearMonth> listMonthPartitions(Connection conn, String parent) throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)")) {
+            pstmt.setString(1, parent);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Matcher m = PARTITION_NAME.matcher(rs.getString(1));
+                    if (m.matches()) {
+                        months.add(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+                    }
+                }
+            }
+        }
+        return months;
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("rentals_p%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
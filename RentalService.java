@@ -1,93 +1,267 @@
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RentalService {
+    private static final Log LOG = Log.get(RentalService.class);
+    private static final OperationMetrics RENT = Metrics.operation("service.rental.rentCar");
+    private static final OperationMetrics RETURN = Metrics.operation("service.rental.returnCar");
+    private static final OperationMetrics RETURN_MANY = Metrics.operation("service.rental.returnCars");
+    private static final OperationMetrics EXTEND = Metrics.operation("service.rental.extendRental");
+    private static final OperationMetrics FIND_FREE = Metrics.operation("service.rental.findCarsFreeBetween");
+    private static final OperationMetrics LIST_FOR_USER = Metrics.operation("service.rental.getRentalsForUser");
+
     private RentalDAO rentalDAO;
     private CarDAO carDAO; // Need to interact with CarDAO to update car status
+    private BookingCalendar bookingCalendar; // In-memory view of who has which car on which dates
+    private PricingEngine pricingEngine;
+    private RentalSettlement settlement; // Final cost of a rental when its car comes back
+    private RentalJournal journal; // History of every rent/return/extend, appended after the database write
 
-    public RentalService(RentalDAO rentalDAO, CarDAO carDAO) {
+    public RentalService(RentalDAO rentalDAO, CarDAO carDAO, BookingCalendar bookingCalendar, PricingEngine pricingEngine,
+                         RentalSettlement settlement, RentalJournal journal) {
         this.rentalDAO = rentalDAO;
         this.carDAO = carDAO;
+        this.bookingCalendar = bookingCalendar;
+        this.pricingEngine = pricingEngine;
+        this.settlement = settlement;
+        this.journal = journal;
+    }
+
+    public boolean rentCar(Session session, String carNum, LocalDate startDate, LocalDate endDate) {
+        long start = System.nanoTime();
+        boolean rented = tryRentCar(session, carNum, startDate, endDate);
+        RENT.record(start, rented);
+        return rented;
     }
 
-    public boolean rentCar(User user, String carNum, LocalDate startDate, LocalDate endDate) {
-        if (user == null) {
-            System.out.println("Error: No user is logged in to rent a car.");
+    private boolean tryRentCar(Session session, String carNum, LocalDate startDate, LocalDate endDate) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to rent a car.");
             return false;
         }
-        if (startDate.isAfter(endDate) || startDate.isBefore(LocalDate.now())) {
-            System.out.println("Error: Invalid rental dates. Start date cannot be after end date or in the past.");
+        User user = session.getUser();
+        LocalDate today = LocalDate.now();
+        if (startDate.isAfter(endDate) || startDate.isBefore(today)) {
+            LOG.info("Error: Invalid rental dates. Start date cannot be after end date or in the past.");
             return false;
         }
 
-        Car carToRent = carDAO.findCarByCarNum(carNum);
-        if (carToRent == null) {
-            System.out.println("Error: Car with number '" + carNum + "' not found.");
+        // Reject overlapping bookings in memory before touching the database
+        if (!bookingCalendar.reserve(carNum, startDate, endDate)) {
+            LOG.info("Error: Car '{}' is already booked for some of the days between {} and {}.", carNum, startDate, endDate);
             return false;
         }
-        if (!"available".equalsIgnoreCase(carToRent.getStatus())) {
-            System.out.println("Error: Car '" + carNum + "' is not available for rent. Current status: " + carToRent.getStatus());
+
+        // The database re-checks the dates under a lock on the car; a rental starting today also claims the car
+        Rental newRental = new Rental(user.getId(), 0, startDate, endDate);
+        Car rentedCar = rentalDAO.bookCar(newRental, carNum, today);
+        if (rentedCar == null) {
+            bookingCalendar.cancel(carNum, startDate);
+            carDAO.invalidateCachedCar(carNum); // the cached status may be what sent us here
+            reportRentFailure(carNum, !startDate.isAfter(today));
             return false;
         }
+        bookingCalendar.confirm(carNum, startDate, newRental.getId());
+        carDAO.refreshCachedCar(rentedCar);
+        session.recordWrite(DatabaseManager.markWrite());
+        journal.append(RentalEvent.Type.RENTED, rentedCar.getId(), user.getId(), newRental.getId(),
+                startDate, endDate, rentedCar.getStatus());
 
-        // Proceed with rental
-        Rental newRental = new Rental(user.getId(), carToRent.getId(), startDate, endDate);
-        boolean rentalSuccess = rentalDAO.createRental(newRental);
+        LOG.info("Car '{}' ({}) rented successfully by {}.", rentedCar.getCarName(), carNum, user.getName());
+        // Optionally display calculated cost here
+        long days = calculateRentalDuration(startDate, endDate);
+        double cost = calculateRentalCost(rentedCar.getId(), rentedCar.getCarType(), startDate, endDate);
+        LOG.infof("Estimated cost for %d days: ₹ %.2f", days, cost);
+        return true;
+    }
 
-        if (rentalSuccess) {
-            // Update car status to 'rented'
-            boolean statusUpdateSuccess = carDAO.updateCarStatus(carToRent.getId(), "rented");
-            if (statusUpdateSuccess) {
-                System.out.println("Car '" + carToRent.getCarName() + "' (" + carNum + ") rented successfully by " + user.getName() + ".");
-                // Optionally display calculated cost here
-                long days = calculateRentalDuration(startDate, endDate);
-                double cost = calculateRentalCost(carToRent.getCarType(), days);
-                System.out.printf("Estimated cost for %d days: ₹ %.2f%n", days, cost);
-                return true;
-            } else {
-                System.err.println("Warning: Car rented but failed to update car status. Manual correction needed for car: " + carNum);
-                return false; // Or throw an exception for critical failure
-            }
+    // Only runs when the booking failed, to tell the user why
+    private void reportRentFailure(String carNum, boolean startsToday) {
+        Car car = carDAO.findCarByCarNum(carNum);
+        if (car == null) {
+            LOG.info("Error: Car with number '{}' not found.", carNum);
+        } else if (startsToday && car.getStatus() != CarStatus.AVAILABLE) {
+            LOG.info("Error: Car '{}' is not available for rent. Current status: {}", carNum, car.getStatus());
         } else {
-            System.out.println("Failed to create rental record in the database.");
+            LOG.info("Error: Car '{}' is already booked for some of those days.", carNum);
+        }
+    }
+
+    public boolean returnCar(Session session, String carNum) {
+        long start = System.nanoTime();
+        boolean returned = tryReturnCar(session, carNum);
+        RETURN.record(start, returned);
+        return returned;
+    }
+
+    private boolean tryReturnCar(Session session, String carNum) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to return a car.");
             return false;
         }
+        // The car status flip and the settlement of its rental are one transaction
+        LocalDate today = LocalDate.now();
+        BulkReturnResult result = rentalDAO.returnCars(List.of(carNum), today, settlement);
+        BulkReturnResult.Entry entry = result.getEntries().iterator().next();
+        switch (entry.getOutcome()) {
+            case RETURNED:
+                finishReturn(session, List.of(entry), today);
+                Car car = entry.getCar();
+                LOG.info("Car '{}' ({}) successfully returned and is now available.", car.getCarName(), carNum);
+                if (!entry.getClosedRentalIds().isEmpty()) {
+                    LOG.infof("Final cost: ₹ %.2f", entry.getAmountDue());
+                }
+                return true;
+            case NOT_FOUND:
+                carDAO.invalidateCachedCar(carNum);
+                LOG.info("Error: Car '{}' not found.", carNum);
+                return false;
+            case NOT_RENTED:
+                carDAO.refreshCachedCar(entry.getCar()); // whatever we had cached disagreed with the database
+                LOG.info("Error: Car '{}' is not currently rented. Current status: {}", carNum, entry.getCar().getStatus());
+                return false;
+            default:
+                LOG.info("Failed to update car status to 'available' upon return.");
+                return false;
+        }
     }
 
-    public boolean returnCar(String carNum) {
-        Car car = carDAO.findCarByCarNum(carNum);
-        if (car == null) {
-            System.out.println("Error: Car '" + carNum + "' not found.");
+    // Local bookkeeping once returns have committed: cache, booking calendar, read-your-writes fence and journal
+    private void finishReturn(Session session, List<BulkReturnResult.Entry> returned, LocalDate today) {
+        if (returned.isEmpty()) return;
+        session.recordWrite(DatabaseManager.markWrite());
+        for (BulkReturnResult.Entry entry : returned) {
+            Car car = entry.getCar();
+            carDAO.refreshCachedCar(car);
+            bookingCalendar.release(car.getId(), today);
+            int rentalId = entry.getClosedRentalIds().isEmpty() ? 0 : entry.getClosedRentalIds().get(0);
+            // The rental's customer: at a depot check-in the logged-in user is staff, not the renter
+            journal.append(RentalEvent.Type.RETURNED, car.getId(), entry.getRentalUserId(), rentalId, null, today,
+                    car.getStatus());
+        }
+    }
+
+    // Depot check-in: returns and settles many cars at once (one transaction, a handful of statements), per-car report
+    public BulkReturnResult returnCars(Session session, List<String> carNums) {
+        long start = System.nanoTime();
+        List<String> cleaned = new ArrayList<>(carNums.size());
+        for (String carNum : carNums) {
+            if (carNum != null && !carNum.isBlank()) {
+                cleaned.add(carNum.trim());
+            }
+        }
+        if (session == null || cleaned.isEmpty()) {
+            LOG.info(session == null ? "Error: No user is logged in to return cars." : "Error: No car numbers given.");
+            BulkReturnResult rejected = new BulkReturnResult(cleaned);
+            rejected.markFailed();
+            RETURN_MANY.failure(start);
+            return rejected;
+        }
+        LocalDate today = LocalDate.now();
+        BulkReturnResult result = rentalDAO.returnCars(cleaned, today, settlement);
+        if (result.isFailed()) {
+            RETURN_MANY.failure(start);
+            return result;
+        }
+        finishReturn(session, result.getReturned(), today);
+        LOG.info("{}", result);
+        RETURN_MANY.success(start);
+        return result;
+    }
+
+    // Pushes out the end date of one of the user's rentals if the car is not booked by someone else in between
+    public boolean extendRental(Session session, int rentalId, LocalDate newEndDate) {
+        long start = System.nanoTime();
+        boolean extended = tryExtendRental(session, rentalId, newEndDate);
+        EXTEND.record(start, extended);
+        return extended;
+    }
+
+    private boolean tryExtendRental(Session session, int rentalId, LocalDate newEndDate) {
+        if (session == null) {
+            LOG.info("Error: No user is logged in to extend a rental.");
             return false;
         }
-        if (!"rented".equalsIgnoreCase(car.getStatus())) {
-            System.out.println("Error: Car '" + carNum + "' is not currently rented. Current status: " + car.getStatus());
+        User user = session.getUser();
+        Rental rental = rentalDAO.findRentalById(rentalId);
+        if (rental == null || rental.getUserId() != user.getId()) {
+            LOG.info("Error: Rental {} not found.", rentalId);
             return false;
         }
-
-        // For simplicity, we just update car status here.
-        // In a more complex system, you'd find the active rental for this car, mark it as completed,
-        // calculate final charges based on actual return date, etc.
-        boolean statusUpdateSuccess = carDAO.updateCarStatus(car.getId(), "available");
-        if (statusUpdateSuccess) {
-            System.out.println("Car '" + car.getCarName() + "' (" + carNum + ") successfully returned and is now available.");
-            return true;
-        } else {
-            System.out.println("Failed to update car status to 'available' upon return.");
+        if (!newEndDate.isAfter(rental.getEndDate())) {
+            LOG.info("Error: New end date must be after the current end date {}.", rental.getEndDate());
             return false;
         }
+        if (rental.getEndDate().isBefore(LocalDate.now())) { // over, or late even if the sweeper has not marked it yet
+            LOG.info("Error: Rental {} ended on {} and can no longer be extended.", rentalId, rental.getEndDate());
+            return false;
+        }
+        if (!bookingCalendar.extend(rental.getCarId(), rentalId, newEndDate)) {
+            LOG.info("Error: The car is booked by someone else before {}.", newEndDate);
+            return false;
+        }
+        if (!rentalDAO.updateRentalEndDate(rental, newEndDate)) {
+            bookingCalendar.extend(rental.getCarId(), rentalId, rental.getEndDate()); // undo
+            LOG.info("Failed to extend rental {}: the car is booked by someone else before {}, or the rental is no "
+                    + "longer active (an overdue car has to be returned).", rentalId, newEndDate);
+            return false;
+        }
+        session.recordWrite(DatabaseManager.markWrite());
+        journal.append(RentalEvent.Type.EXTENDED, rental.getCarId(), user.getId(), rentalId,
+                rental.getStartDate(), newEndDate, null);
+        LOG.info("Rental {} extended until {}.", rentalId, newEndDate);
+        return true;
     }
 
-    public List<Rental> getRentalsForUser(User user) {
-        if (user == null) {
-            System.out.println("Error: No user is logged in to view rentals.");
+    // Cars of a type (or any type when carType is blank) with no booking between startDate and endDate
+    public List<Car> findCarsFreeBetween(String carType, LocalDate startDate, LocalDate endDate, int limit) {
+        long start = System.nanoTime();
+        if (startDate.isAfter(endDate)) {
+            LOG.info("Error: Start date cannot be after end date.");
+            FIND_FREE.failure(start);
+            return List.of();
+        }
+        CarType type = null;
+        if (carType != null && !carType.isBlank()) {
+            type = CarType.find(carType.trim());
+            if (type == null) {
+                LOG.info("No cars of type '{}' in the fleet.", carType.trim());
+                FIND_FREE.success(start);
+                return List.of();
+            }
+        }
+        FleetSnapshot fleet = carDAO.getFleetSnapshot();
+        List<Car> cars = bookingCalendar.findFreeCars(type, startDate, endDate, limit, carId -> {
+            int row = fleet.rowOf(carId);
+            return row < 0 ? null : fleet.statusAt(row);
+        });
+        if (cars.isEmpty()) {
+            LOG.info("No cars are free for those dates.");
+        }
+        FIND_FREE.success(start);
+        return cars;
+    }
+
+    // One query for the whole list: rentals come back already joined with their car
+    public List<RentalDetails> getRentalsForUser(Session session) {
+        long start = System.nanoTime();
+        if (session == null) {
+            LOG.info("Error: No user is logged in to view rentals.");
+            LIST_FOR_USER.failure(start);
             return List.of(); // Return empty list
         }
-        List<Rental> rentals = rentalDAO.getRentalsByUserId(user.getId());
+        User user = session.getUser();
+        List<RentalDetails> rentals = rentalDAO.getRentalDetailsByUserId(user.getId(), session.getLastWriteLsn());
         if (rentals.isEmpty()) {
-            System.out.println("You have no active rentals.");
+            LOG.info("You have no active rentals.");
+        }
+        for (RentalDetails rental : rentals) {
+            rental.setEstimatedCost(calculateRentalCost(
+                    rental.getCarId(), rental.getCarType(), rental.getStartDate(), rental.getEndDate()));
         }
+        LIST_FOR_USER.success(start);
         return rentals;
     }
 
@@ -96,23 +270,19 @@ public class RentalService {
         return ChronoUnit.DAYS.between(startDate, endDate) + 1; // +1 to include both start and end day
     }
 
-    public double calculateRentalCost(String carType, long days) {
-        double ratePerDay = 0.0;
-        switch (carType.toLowerCase()) {
-            case "suv":
-                ratePerDay = 5000.0;
-                break;
-            case "sedan":
-                ratePerDay = 4000.0;
-                break;
-            case "mini":
-                ratePerDay = 3000.0;
-                break;
-            default:
-                System.err.println("Unknown car type: " + carType + ". Defaulting to ₹0 rate.");
-                ratePerDay = 0.0;
-                break;
-        }
-        return ratePerDay * days;
+    // Full price for the dates: per-car or per-type rate, weekend/seasonal multipliers and long-rental discount
+    public double calculateRentalCost(int carId, CarType carType, LocalDate startDate, LocalDate endDate) {
+        return pricingEngine.quote(carId, carType, startDate, endDate);
+    }
+
+    // Flat estimate when only the number of days is known
+    public double calculateRentalCost(CarType carType, long days) {
+        double ratePerDay = pricingEngine.getBaseDailyRate(carType);
+        return ratePerDay * days * (1.0 - pricingEngine.getDiscountPercent(days) / 100.0);
+    }
+
+    // Prices many car x date-range combinations in one call (e.g. for a search results page)
+    public double[] quoteRentals(List<QuoteRequest> requests) {
+        return pricingEngine.quoteBatch(requests);
     }
-}
\ No newline at end of file
+}
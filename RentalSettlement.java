@@ -0,0 +1,67 @@
+import java.time.LocalDate;
+
+// Final price of a rental once its car is back, and the late fee of a rental that is still out.
+// - returned on the end date: the booked price
+// - returned early: the price of the days actually used (so the long-rental discount is that of the shorter
+//   rental) plus settlement.earlyReturnFeePercent of the price of the days given back
+// - returned late: the booked price plus the late fee, i.e. the normal price of the late days times
+//   overdue.lateFeeMultiplier; the overdue sweeper accrues the same fee day by day while the car is out
+// Amounts are rounded to 2 decimals, like the NUMERIC(10, 2) columns they end up in.
+public class RentalSettlement {
+    private final PricingEngine pricingEngine;
+    private final double lateFeeMultiplier;
+    private final double earlyReturnFeePercent;
+
+    public RentalSettlement(PricingEngine pricingEngine, double lateFeeMultiplier, double earlyReturnFeePercent) {
+        this.pricingEngine = pricingEngine;
+        this.lateFeeMultiplier = lateFeeMultiplier;
+        this.earlyReturnFeePercent = earlyReturnFeePercent;
+    }
+
+    public static RentalSettlement fromConfig(PricingEngine pricingEngine, DatabaseConfig config) {
+        return new RentalSettlement(pricingEngine,
+                config.getDouble("overdue.lateFeeMultiplier", 1.0),
+                config.getDouble("settlement.earlyReturnFeePercent", 0));
+    }
+
+    // What a rental comes to when the car is back on returnDate
+    public Bill settle(int carId, CarType carType, LocalDate startDate, LocalDate endDate, LocalDate returnDate) {
+        if (returnDate.isBefore(startDate)) {
+            returnDate = startDate; // a started rental costs at least its first day
+        }
+        if (returnDate.isAfter(endDate)) {
+            double booked = pricingEngine.quote(carId, carType, startDate, endDate);
+            double lateFee = lateFee(pricingEngine.quote(carId, carType, endDate.plusDays(1), returnDate));
+            return new Bill(round(booked + lateFee), lateFee);
+        }
+        double used = pricingEngine.quote(carId, carType, startDate, returnDate);
+        double fee = 0.0;
+        if (returnDate.isBefore(endDate) && earlyReturnFeePercent > 0) {
+            fee = pricingEngine.quote(carId, carType, returnDate.plusDays(1), endDate) * earlyReturnFeePercent / 100.0;
+        }
+        return new Bill(round(used + fee), 0.0);
+    }
+
+    // Late fee for late days whose normal price is latePrice
+    public double lateFee(double latePrice) {
+        return round(latePrice * lateFeeMultiplier);
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100.0) / 100.0;
+    }
+
+    // Settled amounts of one rental
+    public static final class Bill {
+        private final double totalCost;
+        private final double lateFee;
+
+        private Bill(double totalCost, double lateFee) {
+            this.totalCost = totalCost;
+            this.lateFee = lateFee;
+        }
+
+        public double getTotalCost() { return totalCost; }
+        public double getLateFee() { return lateFee; } // 0 unless returned after the end date
+    }
+}
@@ -0,0 +1,170 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sends read-only queries to streaming replicas (db.replicas.urls), each with its own connection pool.
+// - every db.replicas.checkIntervalMillis each replica reports how far it has replayed the primary's WAL
+// - a replica takes reads only while it answers and is at most db.replicas.maxLagMillis behind the primary
+// - a read that has to see an earlier write passes that write's WAL position (see DatabaseManager.markWrite);
+//   only replicas known to have replayed past it qualify
+// - qualifying replicas take turns; when none qualifies the caller falls back to the primary
+// A replica URL that points at a server which is not in recovery (e.g. the primary itself, for local testing)
+// is treated as always up to date.
+public class ReplicaRouter implements AutoCloseable {
+    private static final Log LOG = Log.get(ReplicaRouter.class);
+    private static final OperationMetrics CHECK = Metrics.operation("db.replicas.check");
+    private static final String PRIMARY_POSITION = "SELECT pg_current_wal_lsn() - '0/0'::pg_lsn";
+    private static final String REPLICA_POSITION = "SELECT pg_is_in_recovery(), "
+            + "CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn() ELSE pg_current_wal_lsn() END - '0/0'::pg_lsn, "
+            + "EXTRACT(EPOCH FROM clock_timestamp() - pg_last_xact_replay_timestamp()) * 1000";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final AtomicInteger turn = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private final ScheduledExecutorService checker;
+
+    public ReplicaRouter(DatabaseConfig config) {
+        this.maxLagMillis = config.getReplicaMaxLagMillis();
+        for (String url : config.getReplicaUrls()) {
+            Replica replica = new Replica(url, new ConnectionPool(config, url,
+                    config.getReplicaUser(), config.getReplicaPassword()));
+            replicas.add(replica);
+            String prefix = "db.replica." + replicas.size() + ".";
+            Metrics.gauge(prefix + "healthy", () -> replica.healthy ? 1 : 0);
+            Metrics.gauge(prefix + "lagMillis", () -> replica.lagMillis);
+            Metrics.gauge(prefix + "reads", replica.reads::sum);
+        }
+        Metrics.gauge("db.reads.replica", replicaReads::sum);
+        Metrics.gauge("db.reads.primary", primaryReads::sum);
+        Metrics.gauge("db.reads.failover", failovers::sum);
+
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-replica-checker");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(this::check, 0, config.getReplicaCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+        LOG.info("Routing reads to {} replica(s).", replicas.size());
+    }
+
+    // A connection to a replica that has replayed at least readAfterLsn, or null if the primary has to serve the read
+    public Connection getReadConnection(long readAfterLsn) {
+        int count = replicas.size();
+        int first = Math.floorMod(turn.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((first + i) % count);
+            if (!replica.canServe(readAfterLsn, maxLagMillis)) {
+                continue;
+            }
+            try {
+                Connection conn = replica.pool.getConnection();
+                replica.reads.increment();
+                replicaReads.increment();
+                return conn;
+            } catch (SQLException e) {
+                // Skip it until the next check says it is back
+                replica.healthy = false;
+                failovers.increment();
+                LOG.warn("Replica {} unavailable, trying the next one: {}", replica.url, e.getMessage());
+            }
+        }
+        primaryReads.increment();
+        return null;
+    }
+
+    // Compares every replica's replay position with the primary's current WAL position
+    private void check() {
+        long start = System.nanoTime();
+        long primaryLsn;
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(PRIMARY_POSITION)) {
+            rs.next();
+            primaryLsn = rs.getLong(1);
+        } catch (SQLException e) {
+            // Without the primary's position lag cannot be judged; keep the last known state
+            CHECK.failure(start, e);
+            LOG.warn("Replica check could not read the primary WAL position: {}", e.getMessage());
+            return;
+        }
+        for (Replica replica : replicas) {
+            replica.check(primaryLsn);
+        }
+        CHECK.success(start);
+    }
+
+    @Override
+    public void close() {
+        checker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    // One replica endpoint: its pool plus what the last check found out about it
+    private static final class Replica {
+        private final String url;
+        private final ConnectionPool pool;
+        private final LongAdder reads = new LongAdder();
+        private volatile boolean healthy;
+        private volatile long replayLsn;
+        private volatile long lagMillis = Long.MAX_VALUE;
+        private boolean checked; // only touched by the checker thread
+        private boolean standIn;
+
+        private Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+
+        private boolean canServe(long readAfterLsn, long maxLagMillis) {
+            return healthy && lagMillis <= maxLagMillis && replayLsn >= readAfterLsn;
+        }
+
+        private void check(long primaryLsn) {
+            try (Connection conn = pool.getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(REPLICA_POSITION)) {
+                rs.next();
+                boolean inRecovery = rs.getBoolean(1);
+                long position = rs.getLong(2);
+                double replayAgeMillis = rs.getDouble(3);
+                boolean replayed = !rs.wasNull();
+
+                if (!inRecovery) {
+                    if (!standIn) {
+                        LOG.warn("Replica {} is not in recovery; treating it as an up-to-date stand-in.", url);
+                        standIn = true;
+                    }
+                    replayLsn = Long.MAX_VALUE;
+                    lagMillis = 0;
+                } else {
+                    replayLsn = position;
+                    // Caught up means no lag, however long ago the last transaction was replayed
+                    lagMillis = position >= primaryLsn ? 0 : replayed ? (long) replayAgeMillis : Long.MAX_VALUE;
+                }
+                if (!healthy) {
+                    LOG.info("Replica {} is available for reads.", url);
+                    healthy = true;
+                }
+            } catch (SQLException e) {
+                if (healthy || !checked) {
+                    LOG.warn("Replica {} failed its health check: {}", url, e.getMessage());
+                }
+                healthy = false;
+            }
+            checked = true;
+        }
+    }
+}
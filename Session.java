@@ -0,0 +1,33 @@
+// An authenticated customer session, identified by an opaque token.
+// Services take a Session instead of reading a shared "logged in user", so one process can serve many customers.
+public class Session {
+    private final String token;
+    private final User user;
+    private final long createdAtMillis;
+    private volatile long lastAccessMillis;
+    private volatile long lastWriteLsn; // WAL position of this session's latest write, see DatabaseManager.markWrite
+
+    public Session(String token, User user, long createdAtMillis) {
+        this.token = token;
+        this.user = user;
+        this.createdAtMillis = createdAtMillis;
+        this.lastAccessMillis = createdAtMillis;
+    }
+
+    // Getters
+    public String getToken() { return token; }
+    public User getUser() { return user; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+    public long getLastAccessMillis() { return lastAccessMillis; }
+    public long getLastWriteLsn() { return lastWriteLsn; }
+
+    // Sliding expiry: every use pushes the idle deadline out again
+    void touch(long nowMillis) { this.lastAccessMillis = nowMillis; }
+
+    // Read-your-writes: this session's reads may only go to replicas that have replayed this far
+    synchronized void recordWrite(long lsn) {
+        if (lsn > lastWriteLsn) {
+            lastWriteLsn = lsn;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Concurrent token -> session map with sliding idle expiry, a cap on sessions per user and
+// a background thread that evicts idle sessions.
+public class SessionStore implements AutoCloseable {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, List<Session>> sessionsByUser = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final int maxSessionsPerUser;
+    private final ScheduledExecutorService evictor;
+
+    public SessionStore(long idleTimeoutMillis, int maxSessionsPerUser, long evictionIntervalMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxSessionsPerUser = Math.max(1, maxSessionsPerUser);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions,
+                evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static SessionStore fromConfig(DatabaseConfig config) {
+        return new SessionStore(
+                TimeUnit.MINUTES.toMillis(config.getLong("session.idleTimeoutMinutes", 30)),
+                config.getInt("session.maxPerUser", 5),
+                TimeUnit.SECONDS.toMillis(Math.max(1, config.getLong("session.evictionIntervalSeconds", 60))));
+    }
+
+    // Opens a session for the user; the user's least recently used session is closed if they are at the cap
+    public Session create(User user) {
+        long now = System.currentTimeMillis();
+        Session session = new Session(newToken(), user, now);
+        sessions.put(session.getToken(), session);
+        sessionsByUser.compute(user.getId(), (id, list) -> {
+            List<Session> updated = list == null ? new ArrayList<>() : list;
+            updated.add(session);
+            while (updated.size() > maxSessionsPerUser) {
+                Session oldest = updated.stream().min(Comparator.comparingLong(Session::getLastAccessMillis)).get();
+                updated.remove(oldest);
+                sessions.remove(oldest.getToken());
+            }
+            return updated;
+        });
+        return session;
+    }
+
+    // Returns the live session for the token (and extends it), or null if unknown or expired
+    public Session resolve(String token) {
+        if (token == null) return null;
+        Session session = sessions.get(token);
+        if (session == null) return null;
+        long now = System.currentTimeMillis();
+        if (isExpired(session, now)) {
+            invalidate(token);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    public void invalidate(String token) {
+        Session session = sessions.remove(token);
+        if (session != null) {
+            sessionsByUser.computeIfPresent(session.getUser().getId(), (id, list) -> {
+                list.remove(session);
+                return list.isEmpty() ? null : list;
+            });
+        }
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.getLastAccessMillis() > idleTimeoutMillis;
+    }
+
+    private void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+        List<String> expired = sessions.values().stream()
+                .filter(s -> isExpired(s, now))
+                .map(Session::getToken)
+                .collect(Collectors.toList());
+        expired.forEach(this::invalidate);
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+    }
+}
@@ -0,0 +1,241 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU cache of prepared statements for one pooled connection.
+// DAOs keep writing conn.prepareStatement(sql) ... close() as before: the pool hands out a wrapper around a cached
+// statement and close() puts it back (parameters cleared) instead of closing it. Reusing the same statement object
+// is what lets pgjdbc count executions and switch to a server-side prepared statement after prepareThreshold uses,
+// so the SQL is parsed and planned once per connection instead of on every call.
+// Hit/miss/eviction counts and executions per SQL string are process-wide and visible over JMX and /metrics.
+public class StatementCache {
+    private static final int MAX_TRACKED_STATEMENTS = 1_000; // keeps dynamically built SQL from growing the stats map
+    private static final Stats STATS = new Stats();
+
+    static {
+        Metrics.registerMBean("StatementCache", "statements", STATS);
+        Metrics.gauge("db.statementCache.hits", STATS.hits::sum);
+        Metrics.gauge("db.statementCache.misses", STATS.misses::sum);
+        Metrics.gauge("db.statementCache.evictions", STATS.evictions::sum);
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public StatementCache(Connection physical, int maxSize) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        // accessOrder = true turns the LinkedHashMap into an LRU list
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    STATS.evictions.increment();
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // autoGeneratedKeys is Statement.NO_GENERATED_KEYS or RETURN_GENERATED_KEYS; handle is what getConnection() returns
+    public synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection handle) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "keys:" + sql : sql;
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            STATS.hits.increment();
+            entry.inUse = true;
+            return entry.newHandle(handle);
+        }
+        STATS.misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : physical.prepareStatement(sql);
+        Entry created = new Entry(statement, STATS.executionCounter(sql));
+        created.inUse = true;
+        if (entry != null) {
+            // Same SQL is already open in this borrow (e.g. nested loops): this one is not cached
+            created.evicted = true;
+        } else {
+            entries.put(key, created);
+        }
+        return created.newHandle(handle);
+    }
+
+    private synchronized void giveBack(Entry entry) {
+        entry.inUse = false;
+        if (entry.evicted) {
+            closeQuietly(entry.statement);
+            return;
+        }
+        try {
+            // Leave nothing behind for the next user of this statement
+            ResultSet open = entry.statement.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            if (entry.statement.getFetchSize() != 0) {
+                entry.statement.setFetchSize(0);
+            }
+            entry.statement.clearWarnings();
+        } catch (SQLException e) {
+            entries.values().remove(entry);
+            closeQuietly(entry.statement);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Statement is being thrown away anyway
+        }
+    }
+
+    public static StatementCacheMXBean getStats() {
+        return STATS;
+    }
+
+    // One cached statement; inUse while a DAO holds it
+    private final class Entry {
+        private final PreparedStatement statement;
+        private final LongAdder executions;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(PreparedStatement statement, LongAdder executions) {
+            this.statement = statement;
+            this.executions = executions;
+        }
+
+        // Called with the cache lock held: statements that are in use are closed when they come back
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly(statement);
+            }
+        }
+
+        private PreparedStatement newHandle(Connection connection) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this, connection));
+        }
+    }
+
+    // What the DAO sees: close() returns the statement to the cache, executions are counted per SQL string
+    private final class StatementHandle implements InvocationHandler {
+        private final Entry entry;
+        private final Connection connection;
+        private boolean closed;
+
+        private StatementHandle(Entry entry, Connection connection) {
+            this.entry = entry;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "getConnection":
+                    return connection; // never leak the physical connection
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            if (name.startsWith("execute")) {
+                entry.executions.increment();
+            }
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Process-wide counters, published over JMX as carrental:type=StatementCache
+    private static final class Stats implements StatementCacheMXBean {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> executionsBySql = new ConcurrentHashMap<>();
+        private final LongAdder untracked = new LongAdder();
+
+        private LongAdder executionCounter(String sql) {
+            LongAdder counter = executionsBySql.get(sql);
+            if (counter != null) {
+                return counter;
+            }
+            if (executionsBySql.size() >= MAX_TRACKED_STATEMENTS) {
+                return untracked;
+            }
+            return executionsBySql.computeIfAbsent(sql, k -> new LongAdder());
+        }
+
+        @Override public long getHits() { return hits.sum(); }
+        @Override public long getMisses() { return misses.sum(); }
+        @Override public long getEvictions() { return evictions.sum(); }
+
+        @Override
+        public double getHitRate() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total == 0 ? 0.0 : (double) h / total;
+        }
+
+        // SQL -> executions, busiest first
+        @Override
+        public Map<String, Long> getExecutionCounts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            executionsBySql.entrySet().stream()
+                    .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                    .forEach(e -> counts.put(e.getKey(), e.getValue().sum()));
+            if (untracked.sum() > 0) {
+                counts.put("(other statements)", untracked.sum());
+            }
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+                    getHits(), getMisses(), getEvictions(), getHitRate() * 100);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+import java.util.Map;
+
+// JMX view of the prepared-statement caches of all pooled connections
+public interface StatementCacheMXBean {
+    long getHits();
+    long getMisses();
+    long getEvictions();
+    double getHitRate();
+    Map<String, Long> getExecutionCounts();
+}
@@ -0,0 +1,24 @@
+import java.time.LocalDate;
+
+// Keyset position of a background sweep over rentals ordered by (end_date, id).
+// Stored in sweeper_state so a restarted sweeper continues where it stopped instead of rescanning.
+public class SweepPosition {
+    public static final SweepPosition START = new SweepPosition(LocalDate.of(1970, 1, 1), 0);
+
+    private final LocalDate endDate;
+    private final int id;
+
+    public SweepPosition(LocalDate endDate, int id) {
+        this.endDate = endDate;
+        this.id = id;
+    }
+
+    // Getters
+    public LocalDate getEndDate() { return endDate; }
+    public int getId() { return id; }
+
+    @Override
+    public String toString() {
+        return "(" + endDate + ", " + id + ")";
+    }
+}
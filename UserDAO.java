@@ -2,12 +2,24 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public class UserDAO {
+    private static final Log LOG = Log.get(UserDAO.class);
+    private static final OperationMetrics REGISTER = Metrics.operation("dao.user.registerUser");
+    private static final OperationMetrics FIND_BY_USERNAME = Metrics.operation("dao.user.findUserByUsername");
+    private static final OperationMetrics UPDATE_PASSWORD_HASH = Metrics.operation("dao.user.updatePasswordHash");
+    private static final OperationMetrics FIND_CONFLICT = Metrics.operation("dao.user.findConflict");
+    private static final OperationMetrics FIND_TAKEN = Metrics.operation("dao.user.findTakenUsernames");
+    private static final OperationMetrics FOR_EACH_KEY = Metrics.operation("dao.user.forEachUserKey");
 
     // Method to register a new user (signup)
     public boolean registerUser(User user) {
         String sql = "INSERT INTO users (username, password_hash, name, contact_number, email, address) VALUES (?, ?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection(); // Get connection from your DatabaseManager
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -19,13 +31,15 @@ public class UserDAO {
             pstmt.setString(6, user.getAddress());
 
             int affectedRows = pstmt.executeUpdate();
+            REGISTER.success(start);
             return affectedRows > 0; // Returns true if a row was inserted
         } catch (SQLException e) {
+            REGISTER.failure(start, e);
             // Handle specific SQL exceptions, e.g., unique constraint violation for username
             if (e.getSQLState().startsWith("23")) { // SQLState 23xxx for integrity constraint violation
-                System.err.println("Error: Username '" + user.getUsername() + "' already exists.");
+                LOG.error("Error: Username '{}' already exists.", user.getUsername());
             } else {
-                System.err.println("Database error during user registration: " + e.getMessage());
+                LOG.error("Database error during user registration: {}", e.getMessage());
             }
             return false;
         }
@@ -35,6 +49,7 @@ public class UserDAO {
     public User findUserByUsername(String username) {
         String sql = "SELECT id, username, password_hash, name, contact_number, email, address FROM users WHERE username = ?";
         User user = null;
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -52,9 +67,120 @@ public class UserDAO {
                         rs.getString("address")
                 );
             }
+            FIND_BY_USERNAME.success(start);
         } catch (SQLException e) {
-            System.err.println("Database error during user lookup: " + e.getMessage());
+            FIND_BY_USERNAME.failure(start, e);
+            LOG.error("Database error during user lookup: {}", e.getMessage());
         }
         return user;
     }
+
+    // Replaces a stored password hash, but only if it is still oldHash (a concurrent password change wins)
+    public boolean updatePasswordHash(int userId, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, newHash);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, oldHash);
+
+            int affectedRows = pstmt.executeUpdate();
+            UPDATE_PASSWORD_HASH.success(start);
+            return affectedRows > 0;
+        } catch (SQLException e) {
+            UPDATE_PASSWORD_HASH.failure(start, e);
+            LOG.error("Database error updating password hash: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Which of the two is already used: "username", "email" or null. A null argument is never matched.
+    // Both columns have unique indexes, so this is two index probes.
+    public String findConflict(String username, String email) {
+        String sql = "SELECT username, email FROM users WHERE username = ? OR email = ? LIMIT 2";
+        String conflict = null;
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, username);
+            pstmt.setString(2, email);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next() && conflict == null) {
+                    if (username != null && username.equals(rs.getString("username"))) {
+                        conflict = "username";
+                    } else if (email != null && email.equals(rs.getString("email"))) {
+                        conflict = "email";
+                    }
+                }
+            }
+            FIND_CONFLICT.success(start);
+        } catch (SQLException e) {
+            FIND_CONFLICT.failure(start, e);
+            LOG.error("Database error checking username/email: {}", e.getMessage());
+        }
+        return conflict;
+    }
+
+    // The subset of the given usernames that already exist, in one query
+    public Set<String> findTakenUsernames(Collection<String> usernames) {
+        Set<String> taken = new HashSet<>();
+        if (usernames.isEmpty()) return taken;
+        String sql = "SELECT username FROM users WHERE username = ANY(?)";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("varchar", usernames.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    taken.add(rs.getString("username"));
+                }
+            }
+            FIND_TAKEN.success(start);
+        } catch (SQLException e) {
+            FIND_TAKEN.failure(start, e);
+            LOG.error("Database error checking usernames: {}", e.getMessage());
+            taken.addAll(usernames); // cannot tell, so report none of them as available
+        }
+        return taken;
+    }
+
+    public long countUsers() {
+        String sql = "SELECT count(*) FROM users";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            LOG.error("Database error counting users: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    // Streams (username, email) of every user; email may be null. Returns false if the scan failed.
+    public boolean forEachUserKey(BiConsumer<String, String> consumer) {
+        String sql = "SELECT username, email FROM users";
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false); // lets the driver stream with a cursor instead of loading every row
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(DatabaseManager.getConfig().getFetchSize());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(rs.getString("username"), rs.getString("email"));
+                    }
+                }
+            }
+            conn.commit();
+            FOR_EACH_KEY.success(start);
+            return true;
+        } catch (SQLException e) {
+            FOR_EACH_KEY.failure(start, e);
+            LOG.error("Database error loading usernames: {}", e.getMessage());
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-memory membership index over existing usernames and emails, so signups with a free name cost no extra query.
+// A Bloom filter answers "definitely free" from memory; only "maybe taken" goes to the database to confirm.
+// Built at startup and updated on every successful registration. Users added by other processes are missed until
+// the next rebuild, which is harmless: the unique constraints on users stay the final check.
+public class UserIndex {
+    private static final Log LOG = Log.get(UserIndex.class);
+    private static final OperationMetrics REBUILD = Metrics.operation("index.users.rebuild");
+
+    private final UserDAO userDAO;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private volatile Filters filters;
+    private volatile Filters building; // gets registrations made while a rebuild is loading
+    private volatile boolean ready;    // false until a full load succeeded: until then every check asks the database
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final LongAdder definitelyFree = new LongAdder();
+    private final LongAdder confirmedTaken = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public UserIndex(UserDAO userDAO, long minCapacity, double falsePositiveRate) {
+        this.userDAO = userDAO;
+        this.minCapacity = Math.max(1_000, minCapacity);
+        this.falsePositiveRate = falsePositiveRate;
+        this.filters = new Filters(this.minCapacity, falsePositiveRate);
+
+        Metrics.gauge("index.users.definitelyFree", definitelyFree::sum);
+        Metrics.gauge("index.users.confirmedTaken", confirmedTaken::sum);
+        Metrics.gauge("index.users.falsePositives", falsePositives::sum);
+        Metrics.gauge("index.users.entries", () -> filters.usernames.getEntryCount());
+    }
+
+    public static UserIndex fromConfig(UserDAO userDAO, DatabaseConfig config) {
+        UserIndex index = new UserIndex(userDAO, config.getLong("auth.userIndex.minCapacity", 100_000),
+                config.getDouble("auth.userIndex.falsePositiveRate", 0.01));
+        index.rebuild();
+        return index;
+    }
+
+    // (Re)loads every username and email; sized for twice the current user count so it has room to grow
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        long start = System.nanoTime();
+        try {
+            long capacity = Math.max(minCapacity, userDAO.countUsers() * 2);
+            Filters next = new Filters(capacity, falsePositiveRate);
+            building = next;
+            boolean complete = userDAO.forEachUserKey(next::add);
+            building = null;
+            if (complete) {
+                filters = next;
+                ready = true;
+                REBUILD.success(start);
+                LOG.infof("User index loaded: %d users in %d ms",
+                        next.usernames.getEntryCount(), (System.nanoTime() - start) / 1_000_000);
+            } else {
+                REBUILD.failure(start);
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // Call after a user row was committed
+    public void add(String username, String email) {
+        Filters current = filters;
+        current.add(username, email);
+        Filters next = building;
+        if (next != null) {
+            next.add(username, email);
+        }
+        if (current.usernames.getEntryCount() > current.usernames.getCapacity() && !rebuilding.get()) {
+            // Past its capacity the false-positive rate climbs; rebuild a bigger one off the request path
+            Thread t = new Thread(this::rebuild, "user-index-rebuild");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    // "username", "email" or null; skips the database when neither can be taken
+    public String findConflict(String username, String email) {
+        Filters current = filters;
+        boolean checkUsername = !ready || current.usernames.mightContain(username);
+        boolean checkEmail = !isBlank(email) && (!ready || current.emails.mightContain(email));
+        if (!checkUsername && !checkEmail) {
+            definitelyFree.increment();
+            return null;
+        }
+        String conflict = userDAO.findConflict(checkUsername ? username : null, checkEmail ? email : null);
+        if (conflict == null) {
+            falsePositives.increment();
+        } else {
+            confirmedTaken.increment();
+        }
+        return conflict;
+    }
+
+    // username -> available, for a whole signup form's worth of candidates in at most one query
+    public Map<String, Boolean> checkAvailability(Collection<String> usernames) {
+        Map<String, Boolean> available = new LinkedHashMap<>();
+        List<String> maybeTaken = new ArrayList<>();
+        Filters current = filters;
+        for (String username : usernames) {
+            if (!ready || current.usernames.mightContain(username)) {
+                maybeTaken.add(username);
+            } else {
+                definitelyFree.increment();
+            }
+            available.put(username, true);
+        }
+        if (!maybeTaken.isEmpty()) {
+            Set<String> taken = userDAO.findTakenUsernames(maybeTaken);
+            for (String username : maybeTaken) {
+                if (taken.contains(username)) {
+                    confirmedTaken.increment();
+                    available.put(username, false);
+                } else {
+                    falsePositives.increment();
+                }
+            }
+        }
+        return available;
+    }
+
+    public boolean isReady() { return ready; }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static final class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+
+        Filters(long capacity, double falsePositiveRate) {
+            this.usernames = new BloomFilter(capacity, falsePositiveRate);
+            this.emails = new BloomFilter(capacity, falsePositiveRate);
+        }
+
+        void add(String username, String email) {
+            usernames.add(username);
+            if (!isBlank(email)) {
+                emails.add(email);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package carrental.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.List;
+
+// Bridge to the application classes.
+// The application lives in the default package, which code in a named package cannot reference, and JMH
+// requires benchmarks to be in a named package. So the services are wired once through Main.initServices()
+// and then called through MethodHandles, which costs nanoseconds next to the JDBC round trips being measured.
+final class App {
+    private final Object authService;
+    private final Object carService;
+    private final Object rentalService;
+
+    private final MethodHandle register;
+    private final MethodHandle login;
+    private final MethodHandle rentCar;
+    private final MethodHandle returnCar;
+    private final MethodHandle getCarPage;
+    private final MethodHandle searchCars;
+    private final MethodHandle newCarFilter;
+    private final MethodHandle carTypeOf;
+    private final MethodHandle calculateRentalCost;
+
+    private App() throws Exception {
+        Class<?> main = Class.forName("Main");
+        Method init = main.getDeclaredMethod("initServices");
+        init.setAccessible(true);
+        init.invoke(null);
+        authService = staticField(main, "authService");
+        carService = staticField(main, "carService");
+        rentalService = staticField(main, "rentalService");
+
+        Class<?> session = Class.forName("Session");
+        Class<?> carFilter = Class.forName("CarFilter");
+        Class<?> carType = Class.forName("CarType");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        register = lookup.findVirtual(authService.getClass(), "register", MethodType.methodType(boolean.class,
+                String.class, String.class, String.class, String.class, String.class, String.class)).bindTo(authService);
+        login = lookup.findVirtual(authService.getClass(), "login",
+                MethodType.methodType(session, String.class, String.class)).bindTo(authService);
+        rentCar = lookup.findVirtual(rentalService.getClass(), "rentCar", MethodType.methodType(boolean.class,
+                session, String.class, LocalDate.class, LocalDate.class)).bindTo(rentalService);
+        returnCar = lookup.findVirtual(rentalService.getClass(), "returnCar",
+                MethodType.methodType(boolean.class, session, String.class)).bindTo(rentalService);
+        getCarPage = lookup.findVirtual(carService.getClass(), "getCarPage",
+                MethodType.methodType(List.class, carFilter, int.class, int.class)).bindTo(carService);
+        searchCars = lookup.findVirtual(carService.getClass(), "searchCars", MethodType.methodType(List.class,
+                String.class, String.class, boolean.class, int.class)).bindTo(carService);
+        newCarFilter = lookup.findConstructor(carFilter,
+                MethodType.methodType(void.class, String.class, String.class, boolean.class));
+        carTypeOf = lookup.findStatic(carType, "of", MethodType.methodType(carType, String.class));
+        calculateRentalCost = lookup.findVirtual(rentalService.getClass(), "calculateRentalCost", MethodType.methodType(
+                double.class, int.class, carType, LocalDate.class, LocalDate.class)).bindTo(rentalService);
+    }
+
+    static App boot() {
+        try {
+            return new App();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not wire the application services", e);
+        }
+    }
+
+    private static Object staticField(Class<?> owner, String name) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(null);
+    }
+
+    boolean register(String username, String password) {
+        return (boolean) call(register, username, password, "Bench User", "0000000000", username + "@bench.local", null);
+    }
+
+    Object login(String username, String password) {
+        return call(login, username, password);
+    }
+
+    boolean rentCar(Object session, String carNum, LocalDate startDate, LocalDate endDate) {
+        return (boolean) call(rentCar, session, carNum, startDate, endDate);
+    }
+
+    boolean returnCar(Object session, String carNum) {
+        return (boolean) call(returnCar, session, carNum);
+    }
+
+    List<?> getCarPage(String carType, int afterId, int pageSize) {
+        Object filter = call(newCarFilter, carType, null, true);
+        return (List<?>) call(getCarPage, filter, afterId, pageSize);
+    }
+
+    List<?> searchCars(String query, String carType, int limit) {
+        return (List<?>) call(searchCars, query, carType, true, limit);
+    }
+
+    // The canonical CarType instance for a type name
+    Object carType(String name) {
+        return call(carTypeOf, name);
+    }
+
+    double calculateRentalCost(int carId, Object carType, LocalDate startDate, LocalDate endDate) {
+        return (double) call(calculateRentalCost, carId, carType, startDate, endDate);
+    }
+
+    private static Object call(MethodHandle handle, Object... args) {
+        try {
+            return handle.invokeWithArguments(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
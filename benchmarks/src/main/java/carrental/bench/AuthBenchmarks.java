@@ -0,0 +1,31 @@
+package carrental.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// AuthService.login for a known user (user lookup plus password check)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class AuthBenchmarks {
+
+    @Benchmark
+    public Object login(FleetState fleet) {
+        return fleet.app.login(FleetState.USERNAME, FleetState.PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object loginContended(FleetState fleet) {
+        return fleet.app.login(FleetState.USERNAME, FleetState.PASSWORD);
+    }
+}
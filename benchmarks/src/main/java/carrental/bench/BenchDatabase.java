@@ -0,0 +1,85 @@
+package carrental.bench;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Embedded PostgreSQL stand-in for benchmarks: one real server per forked benchmark JVM, seeded with a synthetic fleet.
+final class BenchDatabase {
+    static final String CAR_NUM_PREFIX = "BN";
+
+    private static EmbeddedPostgres postgres;
+    private static String jdbcUrl;
+
+    private BenchDatabase() {
+    }
+
+    // Starts the server (once per JVM) and points the application's DatabaseConfig at it.
+    // Must run before any application class touches DatabaseManager.
+    static synchronized void start(int poolSize) throws IOException, SQLException {
+        if (postgres != null) return;
+        postgres = EmbeddedPostgres.builder().start();
+        jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+        System.setProperty("db.url", jdbcUrl);
+        System.setProperty("db.user", "postgres");
+        System.setProperty("db.password", "postgres");
+        System.setProperty("db.pool.maxSize", String.valueOf(poolSize));
+        System.setProperty("db.pool.minIdle", String.valueOf(Math.min(poolSize, 4)));
+        System.setProperty("pricing.reloadSeconds", "0");
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute(readResource("/schema.sql"));
+        }
+    }
+
+    // Replaces all data with fleetSize cars and rentalsPerCar completed historical rentals per car
+    static void seed(int fleetSize, int rentalsPerCar) throws SQLException {
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE rentals, cars, users RESTART IDENTITY CASCADE");
+            stmt.execute("INSERT INTO users (username, password_hash, name, email) "
+                    + "VALUES ('history', 'x', 'History Owner', 'history@bench.local')");
+            try (PreparedStatement cars = conn.prepareStatement(
+                    "INSERT INTO cars (car_num, car_type, car_name, status) "
+                            + "SELECT ? || lpad(i::text, 8, '0'), "
+                            + "       (ARRAY['SUV', 'Sedan', 'Mini'])[1 + i % 3], "
+                            + "       (ARRAY['Toyota Camry', 'Honda CRV', 'Maruti Alto', 'Hyundai Creta', 'Tata Nexon'])[1 + i % 5], "
+                            + "       'available' "
+                            + "FROM generate_series(1, ?) AS i")) {
+                cars.setString(1, CAR_NUM_PREFIX);
+                cars.setInt(2, fleetSize);
+                cars.executeUpdate();
+            }
+            // History only: rentals that ended in the past, spread over the last few years
+            try (PreparedStatement rentals = conn.prepareStatement(
+                    "INSERT INTO rentals (user_id, car_id, start_date, end_date, actual_return_date, total_cost, rental_status) "
+                            + "SELECT 1, c.id, d.start_date, d.start_date + 3, d.start_date + 3, 12000, 'completed' "
+                            + "FROM cars c CROSS JOIN LATERAL ("
+                            + "    SELECT CURRENT_DATE - 30 - ((c.id * 37 + n * 101) % 1000) AS start_date "
+                            + "    FROM generate_series(1, ?) AS n) d")) {
+                rentals.setInt(1, rentalsPerCar);
+                rentals.executeUpdate();
+            }
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    static String carNum(int index) {
+        return String.format("%s%08d", CAR_NUM_PREFIX, index);
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, "postgres", "postgres");
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = BenchDatabase.class.getResourceAsStream(name)) {
+            if (in == null) throw new IOException("Missing resource " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package carrental.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Available-car listing (CarService.getCarPage): first page, a page deep into the fleet, and a type filter
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CarListingBenchmarks {
+    private static final int PAGE_SIZE = 50;
+
+    @Benchmark
+    public List<?> firstPage(FleetState fleet) {
+        return fleet.app.getCarPage(null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<?> deepPage(FleetState fleet) {
+        return fleet.app.getCarPage(null, fleet.fleetSize * 3 / 4, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<?> filteredByType(FleetState fleet) {
+        return fleet.app.getCarPage("SUV", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<?> firstPageContended(FleetState fleet) {
+        return fleet.app.getCarPage(null, 0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,53 @@
+package carrental.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Shared benchmark fixture: embedded database seeded with a synthetic fleet, the wired services and a logged-in user.
+// Sizes are JMH parameters, e.g. -p fleetSize=1000,100000,1000000 -p rentalsPerCar=2
+@State(Scope.Benchmark)
+public class FleetState {
+    static final String USERNAME = "bench.user";
+    static final String PASSWORD = "bench-password";
+
+    @Param({"1000", "100000", "1000000"})
+    public int fleetSize;
+
+    @Param({"2"})
+    public int rentalsPerCar;
+
+    @Param({"32"})
+    public int poolSize;
+
+    App app;
+    Object session;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.start(poolSize);
+        BenchDatabase.seed(fleetSize, rentalsPerCar);
+        app = App.boot();
+        app.register(USERNAME, PASSWORD);
+        session = app.login(USERNAME, PASSWORD);
+        if (session == null) {
+            throw new IllegalStateException("Benchmark user could not log in");
+        }
+        // The services report to the console; keep that out of the measurements
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (originalOut != null) {
+            System.setOut(originalOut);
+        }
+    }
+}
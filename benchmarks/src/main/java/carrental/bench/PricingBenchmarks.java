@@ -0,0 +1,43 @@
+package carrental.bench;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// RentalService.calculateRentalCost: pure CPU, no database access on this path
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PricingBenchmarks {
+
+    // CarType instances, resolved once so the benchmark does not time the lookup
+    @State(Scope.Benchmark)
+    public static class CarTypes {
+        Object[] types;
+
+        @Setup
+        public void resolve(FleetState fleet) {
+            types = new Object[] {fleet.app.carType("SUV"), fleet.app.carType("Sedan"), fleet.app.carType("Mini")};
+        }
+    }
+
+    @Benchmark
+    public double calculateRentalCost(FleetState fleet, CarTypes carTypes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate start = LocalDate.now().plusDays(random.nextInt(300));
+        return fleet.app.calculateRentalCost(1 + random.nextInt(fleet.fleetSize), carTypes.types[random.nextInt(3)],
+                start, start.plusDays(1 + random.nextInt(30)));
+    }
+}
@@ -0,0 +1,62 @@
+package carrental.bench;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// RentalService.rentCar followed by returnCar, so every iteration leaves the car available again.
+// Throughput and SampleTime (p50/p90/p99/p99.9) are both reported.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RentalBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class CarPicker {
+        // Number of cars the contended benchmark fights over
+        @Param({"16"})
+        public int contendedCars;
+
+        final AtomicInteger next = new AtomicInteger();
+    }
+
+    // Each call takes the next car of the fleet, so renters never collide
+    @Benchmark
+    @Threads(1)
+    public boolean rentAndReturn(FleetState fleet, CarPicker picker) {
+        int index = 1 + Math.floorMod(picker.next.getAndIncrement(), fleet.fleetSize);
+        return rentThenReturn(fleet, BenchDatabase.carNum(index));
+    }
+
+    // N renters on a small pool of cars: measures the conditional-update path under contention
+    @Benchmark
+    @Threads(8)
+    public boolean contendedRentAndReturn(FleetState fleet, CarPicker picker) {
+        int pool = Math.min(picker.contendedCars, fleet.fleetSize);
+        int index = 1 + ThreadLocalRandom.current().nextInt(pool);
+        return rentThenReturn(fleet, BenchDatabase.carNum(index));
+    }
+
+    private static boolean rentThenReturn(FleetState fleet, String carNum) {
+        LocalDate today = LocalDate.now();
+        boolean rented = fleet.app.rentCar(fleet.session, carNum, today, today.plusDays(2));
+        if (rented) {
+            fleet.app.returnCar(fleet.session, carNum);
+        }
+        return rented;
+    }
+}
@@ -0,0 +1,44 @@
+package carrental.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// In-memory car search (CarService.searchCars) over the whole fleet: a car number typed in full (one hit, so every
+// tier down to typos is consulted), a car number with a typo, a name prefix and a name with a typo.
+// The search target is under a millisecond on the 1M-car fleet: -p fleetSize=1000000
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmarks {
+    private static final int LIMIT = 10;
+
+    @Benchmark
+    public List<?> exactCarNum(FleetState fleet) {
+        return fleet.app.searchCars(BenchDatabase.carNum(fleet.fleetSize / 2), null, LIMIT);
+    }
+
+    @Benchmark
+    public List<?> carNumTypo(FleetState fleet) {
+        String carNum = BenchDatabase.carNum(fleet.fleetSize / 2);
+        return fleet.app.searchCars(carNum.substring(0, carNum.length() - 1) + "X", null, LIMIT);
+    }
+
+    @Benchmark
+    public List<?> namePrefix(FleetState fleet) {
+        return fleet.app.searchCars("toyo", null, LIMIT);
+    }
+
+    @Benchmark
+    public List<?> nameTypo(FleetState fleet) {
+        return fleet.app.searchCars("hyundia creta", "SUV", LIMIT);
+    }
+}
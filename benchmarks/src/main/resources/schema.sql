@@ -0,0 +1,140 @@
+-- Schema the benchmarks create in the embedded database (same as the README's Database Setup section)
+
+CREATE TABLE users (
+    id SERIAL PRIMARY KEY,
+    username VARCHAR(50) UNIQUE NOT NULL,
+    password_hash VARCHAR(255) NOT NULL, -- Store hashed passwords (e.g., BCrypt hash)
+    name VARCHAR(100) NOT NULL,
+    contact_number VARCHAR(20),
+    email VARCHAR(100) UNIQUE,
+    address TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Table: cars
+CREATE TABLE cars (
+    id SERIAL PRIMARY KEY,
+    car_num VARCHAR(20) UNIQUE NOT NULL,       -- e.g., license plate
+    car_type VARCHAR(50) NOT NULL,            -- e.g., 'SUV', 'Sedan', 'Mini'
+    car_name VARCHAR(100) NOT NULL,           -- e.g., 'Toyota Camry', 'Honda CRV'
+    status VARCHAR(20) NOT NULL DEFAULT 'available', -- 'available', 'rented', 'maintenance'
+    daily_rate NUMERIC(10, 2),                -- optional, e.g., 75.00; overrides the car type's rate
+    version BIGINT NOT NULL DEFAULT 1,        -- bumped by a trigger on every change (see below)
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Table: rentals
+CREATE TABLE rentals (
+    id SERIAL PRIMARY KEY,
+    user_id INT NOT NULL,
+    car_id INT NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    actual_return_date DATE,                  -- NULL until car is returned
+    total_cost NUMERIC(10, 2),                -- NULL until calculated on return
+    rental_status VARCHAR(20) NOT NULL DEFAULT 'active', -- 'active', 'overdue', 'completed', 'cancelled'
+    late_fee NUMERIC(10, 2),                  -- set by the overdue sweeper while the car is late
+    late_fee_through DATE,                    -- date the late fee has been accrued up to
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+
+    -- Foreign Key Constraints
+    CONSTRAINT fk_user
+        FOREIGN KEY (user_id)
+        REFERENCES users(id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_car
+        FOREIGN KEY (car_id)
+        REFERENCES cars(id)
+        ON DELETE RESTRICT
+);
+
+-- Background jobs: where each sweep has got to (keyset position over rentals)
+CREATE TABLE sweeper_state (
+    name VARCHAR(50) PRIMARY KEY,
+    last_end_date DATE NOT NULL,
+    last_id INT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Messages for customers (e.g. overdue reminders), picked up by whatever delivers them
+CREATE TABLE rental_notifications (
+    id BIGSERIAL PRIMARY KEY,
+    rental_id INT NOT NULL REFERENCES rentals(id) ON DELETE CASCADE,
+    user_id INT NOT NULL,
+    kind VARCHAR(30) NOT NULL,                -- e.g. 'overdue'
+    message TEXT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP WITH TIME ZONE          -- NULL until delivered
+);
+CREATE INDEX idx_rental_notifications_unsent ON rental_notifications (id) WHERE sent_at IS NULL;
+
+-- Optional: pricing rules (without them the built-in SUV/Sedan/Mini rates are used)
+CREATE TABLE car_type_rates (
+    car_type VARCHAR(50) PRIMARY KEY,          -- matched case-insensitively against cars.car_type
+    daily_rate NUMERIC(10, 2) NOT NULL,
+    weekend_multiplier NUMERIC(5, 3) NOT NULL DEFAULT 1.0
+);
+CREATE TABLE seasonal_rates (
+    id SERIAL PRIMARY KEY,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    multiplier NUMERIC(5, 3) NOT NULL         -- e.g. 1.25 for peak season
+);
+CREATE TABLE long_rental_discounts (
+    min_days INT PRIMARY KEY,                 -- rentals of at least this many days...
+    discount_percent NUMERIC(5, 2) NOT NULL   -- ...get this discount
+);
+-- cars.daily_rate, when set above 0, overrides the type rate for that car
+
+-- Optional: Add indexes for performance
+CREATE INDEX idx_users_username ON users (username);
+CREATE INDEX idx_cars_status ON cars (status);
+CREATE INDEX idx_rentals_user_id ON rentals (user_id);
+CREATE INDEX idx_rentals_car_id ON rentals (car_id);
+CREATE INDEX idx_rentals_status ON rentals (rental_status);
+-- Live (not yet settled) rentals: a returned car's rental, a customer's current rentals
+CREATE INDEX idx_rentals_live_car ON rentals (car_id) WHERE rental_status IN ('active', 'overdue');
+CREATE INDEX idx_rentals_live_user ON rentals (user_id) WHERE rental_status IN ('active', 'overdue');
+-- Keyset scan of the overdue sweeper
+CREATE INDEX idx_rentals_end_date_id ON rentals (end_date, id);
+-- Name-prefix filter on the car listing
+CREATE INDEX idx_cars_name_prefix ON cars (car_name text_pattern_ops);
+
+-- Change events for other app instances (see FleetChangeListener): every change to a car bumps its version,
+-- and changes to cars and bookings are published on the fleet_changes channel
+CREATE FUNCTION bump_car_version() RETURNS trigger AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
+CREATE TRIGGER cars_bump_version BEFORE UPDATE ON cars
+    FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_car_version();
+
+CREATE FUNCTION notify_car_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND NEW.version = OLD.version THEN
+        RETURN NULL; -- nothing changed
+    END IF;
+    PERFORM pg_notify('fleet_changes', json_build_object(
+        'kind', 'car', 'id', NEW.id, 'version', NEW.version, 'status', NEW.status,
+        'oldStatus', CASE WHEN TG_OP = 'UPDATE' THEN OLD.status END,
+        'carNum', NEW.car_num, 'carType', NEW.car_type, 'carName', NEW.car_name,
+        'origin', current_setting('application_name'),
+        'sentAt', (extract(epoch FROM clock_timestamp()) * 1000)::bigint)::text);
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+CREATE TRIGGER cars_notify AFTER INSERT OR UPDATE ON cars
+    FOR EACH ROW EXECUTE FUNCTION notify_car_change();
+
+CREATE FUNCTION notify_rental_change() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('fleet_changes', json_build_object(
+        'kind', 'rental', 'id', NEW.id, 'carId', NEW.car_id, 'startDate', NEW.start_date,
+        'endDate', NEW.end_date, 'status', NEW.rental_status,
+        'origin', current_setting('application_name'),
+        'sentAt', (extract(epoch FROM clock_timestamp()) * 1000)::bigint)::text);
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+CREATE TRIGGER rentals_notify AFTER INSERT OR UPDATE OF start_date, end_date, rental_status ON rentals
+    FOR EACH ROW EXECUTE FUNCTION notify_rental_change();